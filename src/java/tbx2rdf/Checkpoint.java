@@ -0,0 +1,107 @@
+package tbx2rdf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The state of a big-file conversion after the last entry written, from which the conversion can be resumed.
+ *
+ * It is saved as a properties file. The file is replaced atomically, so a crash while saving leaves the
+ * previous checkpoint.
+ */
+public class Checkpoint {
+
+    ///Index of the document being converted, for zip archives with several documents
+    public int document = 0;
+
+    ///Number of entries of the document written to the output
+    public long entries = 0;
+
+    ///Position in the document after the last entry written: in bytes if the input is memory-mapped, in characters otherwise
+    public long inputOffset = 0;
+
+    ///Whether the input was memory-mapped
+    public boolean memoryMapped = false;
+
+    ///Number of bytes of the output
+    public long outputOffset = 0;
+
+    ///Languages of the document whose lexicon has been written
+    public Set<String> languages = new TreeSet<String>();
+
+    /**
+     * Whether the document has to be converted from its beginning, header included
+     */
+    public boolean atDocumentStart() {
+        return entries == 0 && inputOffset == 0;
+    }
+
+    /**
+     * Saves the checkpoint, replacing the previous one
+     * @param file The checkpoint file
+     */
+    public void save(File file) throws IOException {
+        final Properties prop = new Properties();
+        prop.setProperty("document", String.valueOf(document));
+        prop.setProperty("entries", String.valueOf(entries));
+        prop.setProperty("input.offset", String.valueOf(inputOffset));
+        prop.setProperty("input.memorymapped", String.valueOf(memoryMapped));
+        prop.setProperty("output.offset", String.valueOf(outputOffset));
+        final StringBuilder langs = new StringBuilder();
+        for (String language : languages) {
+            langs.append(langs.length() == 0 ? "" : ",").append(language);
+        }
+        prop.setProperty("languages", langs.toString());
+        final File tmp = new File(file.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            prop.store(out, "tbx2rdf checkpoint");
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            //Some platforms do not replace an existing file
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("The checkpoint " + file + " could not be written");
+            }
+        }
+    }
+
+    /**
+     * Loads a checkpoint
+     * @param file The checkpoint file
+     */
+    public static Checkpoint load(File file) throws IOException {
+        final Properties prop = new Properties();
+        final InputStream in = new FileInputStream(file);
+        try {
+            prop.load(in);
+        } finally {
+            in.close();
+        }
+        final Checkpoint checkpoint = new Checkpoint();
+        try {
+            checkpoint.document = Integer.parseInt(prop.getProperty("document", "0"));
+            checkpoint.entries = Long.parseLong(prop.getProperty("entries", "0"));
+            checkpoint.inputOffset = Long.parseLong(prop.getProperty("input.offset", "0"));
+            checkpoint.memoryMapped = Boolean.parseBoolean(prop.getProperty("input.memorymapped", "false"));
+            checkpoint.outputOffset = Long.parseLong(prop.getProperty("output.offset", "0"));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid checkpoint " + file, e);
+        }
+        for (String language : prop.getProperty("languages", "").split(",")) {
+            if (!language.isEmpty()) {
+                checkpoint.languages.add(language);
+            }
+        }
+        return checkpoint;
+    }
+}
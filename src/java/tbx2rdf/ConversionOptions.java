@@ -0,0 +1,72 @@
+package tbx2rdf;
+
+import tbx2rdf.utils.AgentDictionary;
+import tbx2rdf.utils.TDB2OutputStream;
+
+/**
+ * Options of the conversion of big files
+ */
+public class ConversionOptions {
+
+    ///Number of threads converting the entries
+    public int threads = 1;
+
+    ///Whether the entries are written in the same order as they are read
+    public boolean ordered = true;
+
+    ///Whether the input is memory-mapped and scanned as raw bytes instead of being decoded to text
+    public boolean memoryMapped = false;
+
+    ///Whether the output is gzip compressed, by as many threads as the conversion
+    public boolean gzip = false;
+
+    ///Size in bytes of the uncompressed N-Triples of an output shard, 0 for no limit
+    public long shardBytes = 0;
+
+    ///Number of triples of an output shard, 0 for no limit
+    public long shardTriples = 0;
+
+    ///Checkpoint file, saved every checkpointInterval entries. null for no checkpoints.
+    public String checkpoint = null;
+
+    ///Number of entries between checkpoints
+    public int checkpointInterval = 10000;
+
+    ///Whether the conversion resumes from the checkpoint, if there is one
+    public boolean resume = false;
+
+    ///Format of the output, which has to be written entry by entry: N-Triples, N-Quads, Turtle or RDF Thrift
+    public OutputFormat format = OutputFormat.NTRIPLES;
+
+    ///Number of agents remembered so that each one is described once, the least recently used being forgotten
+    public int agents = AgentDictionary.DEFAULT_CAPACITY;
+
+    ///Directory of a TDB2 database where the output is bulk loaded instead of being written to a file, null for none
+    public String tdb2 = null;
+
+    ///Bulk loader of TDB2: parallel, phased, sequential or basic
+    public String tdb2Loader = "parallel";
+
+    ///Number of triples handed to the TDB2 loader at a time
+    public int tdb2Batch = TDB2OutputStream.DEFAULT_BATCH_SIZE;
+
+    ///Whether the output is written as an HDT file, generated from the N-Triples once the conversion has finished
+    public boolean hdt = false;
+
+    ///Directory where the work files of the HDT generation are written, null for the directory of the output
+    public String hdtWork = null;
+
+    /**
+     * Whether the output is split into shards
+     */
+    public boolean isSharded() {
+        return shardBytes > 0 || shardTriples > 0;
+    }
+
+    /**
+     * Whether checkpoints can be saved: the output has to be a plain file written in order
+     */
+    public boolean canCheckpoint() {
+        return ordered && !gzip && !isSharded() && tdb2 == null && !hdt;
+    }
+}
@@ -0,0 +1,41 @@
+package tbx2rdf;
+
+/**
+ * The progress of a conversion, which other threads can follow while it runs, and through which they can
+ * cancel it.
+ */
+public class ConversionProgress {
+
+    ///Number of entries processed
+    volatile long entries = 0;
+
+    ///Number of entries which could not be converted
+    volatile long errors = 0;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Number of entries processed so far
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Number of entries which could not be converted so far
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Asks the conversion to stop. It fails with an InterruptedIOException before writing its next entry.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
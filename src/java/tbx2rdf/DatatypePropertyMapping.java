@@ -1,18 +1,26 @@
 package tbx2rdf;
 
-import java.util.Set;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
 
 /**
  * 
  */
 public class DatatypePropertyMapping implements Mapping {
 
-	String propertyURL;
-	String datatypeURL;
+	final String propertyURL;
+	final String datatypeURL;
+	///The property and the datatype, resolved once for every triple
+	final Property property;
+	final RDFDatatype datatype;
 	public DatatypePropertyMapping(String url, String datatypeURL)
 	{
 		propertyURL = url;
 		this.datatypeURL = datatypeURL;
+		property = ResourceFactory.createProperty(url);
+		datatype = datatypeURL == null ? null : NodeFactory.getType(datatypeURL);
 	}
 	@Override
 	public String getURL() {
@@ -21,6 +29,15 @@ public class DatatypePropertyMapping implements Mapping {
 	public String getDatatypeURL() { 
 		return datatypeURL;
 	}
+	public Property getProperty() {
+		return property;
+	}
+	/**
+	 * The datatype of the values, or null if it is not given
+	 */
+	public RDFDatatype getDatatype() {
+		return datatype;
+	}
 	public String toString()
 	{
 		return String.format("Datatype property: <%s> {%s}",propertyURL);
@@ -1,23 +1,96 @@
 package tbx2rdf;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
 /**
  * Mapping for exceptions
+ * The values are converted by the ValueTransformer named in the mapping, which is resolved when the mapping is created.
+ * Only the registered transformers can be named, unless the mapping comes from a trusted mapping file: the classes
+ * of the mappings sent to the web service must not be loaded.
  * @author Victor
  */
 public class ExceptionMapping implements Mapping{
 
     String cosa="";
     String obj="";
+    final ValueTransformer transformer;
     
     public ExceptionMapping(String _cosa, String _obj)
+    {
+        this(_cosa, _obj, false);
+    }
+
+    /**
+     * @param classNames Whether the transformer can also be given by the name of its class
+     */
+    public ExceptionMapping(String _cosa, String _obj, boolean classNames)
     {
         cosa=_cosa;
         obj=_obj;
+        transformer=getTransformer(_cosa, classNames);
     }
     
     @Override
     public String getURL() {
         return cosa;
     }
+
+    public ValueTransformer getTransformer() {
+        return transformer;
+    }
+
+    /**
+     * Obtains a registered transformer by its name
+     * @throws IllegalArgumentException If there is no such transformer
+     */
+    public static ValueTransformer getTransformer(String name) {
+        return getTransformer(name, false);
+    }
+
+    /**
+     * Obtains a transformer by its name or, if allowed, by the name of its class
+     * @param classNames Whether a class which is not registered can be loaded. The class is only initialized and
+     * created if it is a ValueTransformer.
+     * @throws IllegalArgumentException If there is no such transformer
+     */
+    public static ValueTransformer getTransformer(String name, boolean classNames) {
+        final ValueTransformer transformer = Registry.transformers.get(name);
+        if (transformer != null) {
+            return transformer;
+        }
+        if (classNames && name.indexOf('.') > 0) {
+            final Class<?> c;
+            try {
+                c = Class.forName(name, false, ExceptionMapping.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("No value transformer named " + name + " is registered or can be loaded", e);
+            }
+            if (!ValueTransformer.class.isAssignableFrom(c)) {
+                throw new IllegalArgumentException(name + " is not a value transformer");
+            }
+            try {
+                return c.asSubclass(ValueTransformer.class).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("The value transformer " + name + " could not be created", e);
+            }
+        }
+        throw new IllegalArgumentException("No value transformer named " + name + " is registered");
+    }
+
+    /**
+     * The transformers registered with the ServiceLoader, loaded the first time a transformer is needed
+     */
+    private static class Registry {
+
+        static final Map<String, ValueTransformer> transformers = new HashMap<String, ValueTransformer>();
+
+        static {
+            for (ValueTransformer transformer : ServiceLoader.load(ValueTransformer.class, ExceptionMapping.class.getClassLoader())) {
+                transformers.put(transformer.getName(), transformer);
+            }
+        }
+    }
     
 }
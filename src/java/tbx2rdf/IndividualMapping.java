@@ -1,20 +1,29 @@
 package tbx2rdf;
 
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+
 /**
  * Mapping to an individual
  * @author John McCrae
  */
 public class IndividualMapping implements Mapping {
     final String url;
+    final Resource resource;
 
     public IndividualMapping(String url) {
 	this.url = url;
+	this.resource = ResourceFactory.createResource(url);
     }
 
     @Override
     public String getURL() {
 	return url;
     }
+
+    public Resource getResource() {
+	return resource;
+    }
     
     @Override
     public String toString() {
@@ -1,6 +1,7 @@
 package tbx2rdf;
 
 import tbx2rdf.types.TBX_Terminology;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -8,18 +9,25 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 import org.xml.sax.SAXException;
+import tbx2rdf.utils.AgentDictionary;
+import tbx2rdf.utils.EntryEmitter;
+import tbx2rdf.utils.HDTOutputStream;
+import tbx2rdf.utils.ParallelGzipOutputStream;
+import tbx2rdf.utils.ShardedPrintStream;
+import tbx2rdf.utils.TDB2OutputStream;
+import tbx2rdf.utils.URIMinter;
 
 /**
  * Main class for TBX2RDF Converter.
@@ -48,6 +56,10 @@ public class Main {
     static String output_file = "";
     // If the output is to be shown in console
     static boolean bOutputInConsole = true;
+    //Threads, order and input mode used to convert a big file
+    static ConversionOptions options = new ConversionOptions();
+    //Format of the output: Turtle for a small file and N-Triples for a big one unless another is set
+    static OutputFormat format = null;
     //Determines if the parsing is going to be lenient or strict
     public static boolean lenient = false;
     // The mappings to be used
@@ -66,6 +78,11 @@ public class Main {
 
         try {
 			readConfigurationFile(args[0]);
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("--resume")) {
+					options.resume = true;
+				}
+			}
 			mappings = Mappings.readInMappings(mapping_file);
 
 	        if (big) {
@@ -116,6 +133,8 @@ public class Main {
 	        if (!output_file.endsWith(".rdf")) {
 	            output_file += ".rdf";
 	        }
+		} else {
+			output_file = output;
 		}
         
         String namespace = prop.getProperty("namespace", "");
@@ -124,9 +143,47 @@ public class Main {
         }
 		DATA_NAMESPACE = namespace;
 		
+		URIMinter.setTemplate(prop.getProperty("uritemplate", URIMinter.DEFAULT_TEMPLATE).trim());
+		
 		String mappings = prop.getProperty("mappings", "mappings.default");
 		mapping_file = mappings;
 		
+		options.threads = Integer.parseInt(prop.getProperty("threads", "1").trim());
+		options.ordered = Boolean.parseBoolean(prop.getProperty("ordered", "true").trim());
+		options.memoryMapped = Boolean.parseBoolean(prop.getProperty("memorymapped", "false").trim());
+		options.gzip = Boolean.parseBoolean(prop.getProperty("gzip", "false").trim());
+		options.shardBytes = parseSize(prop.getProperty("shardsize", "0"));
+		options.shardTriples = Long.parseLong(prop.getProperty("shardtriples", "0").trim());
+		String checkpoint = prop.getProperty("checkpoint", "").trim();
+		options.checkpoint = checkpoint.isEmpty() ? null : checkpoint;
+		options.checkpointInterval = Integer.parseInt(prop.getProperty("checkpointinterval", "10000").trim());
+		options.resume = Boolean.parseBoolean(prop.getProperty("resume", "false").trim());
+		options.agents = Integer.parseInt(prop.getProperty("agentcache", String.valueOf(AgentDictionary.DEFAULT_CAPACITY)).trim());
+		String outputFormat = prop.getProperty("format", "").trim();
+		if (outputFormat.isEmpty()) {
+			format = big ? OutputFormat.NTRIPLES : OutputFormat.TURTLE;
+		} else if (outputFormat.equalsIgnoreCase("hdt")) {
+			//The HDT file is generated from the N-Triples
+			options.hdt = true;
+			format = OutputFormat.NTRIPLES;
+			if (output.length() == 0) {
+				output_file = output_file.replaceAll("\\.rdf$", ".hdt");
+			}
+		} else {
+			format = OutputFormat.forName(outputFormat);
+		}
+		options.format = format;
+		String tdb2 = prop.getProperty("tdb2", "").trim();
+		if (!tdb2.isEmpty()) {
+			//The loader reads RDF Thrift, which is the cheapest to decode
+			options.tdb2 = tdb2;
+			options.format = OutputFormat.THRIFT;
+		}
+		String hdtWork = prop.getProperty("hdtwork", "").trim();
+		options.hdtWork = hdtWork.isEmpty() ? null : hdtWork;
+		options.tdb2Loader = prop.getProperty("tdb2loader", "parallel").trim();
+		options.tdb2Batch = Integer.parseInt(prop.getProperty("tdb2batch", String.valueOf(TDB2OutputStream.DEFAULT_BATCH_SIZE)).trim());
+		
 		//recap al values that will be used
 		System.out.println("The following values will be used:");
 		System.out.println("\tbig = "+big);
@@ -134,9 +191,54 @@ public class Main {
 		System.out.println("\toutput_file = "+output_file);
 		System.out.println("\tnamespace = "+DATA_NAMESPACE);
 		System.out.println("\tmapping_file = "+mapping_file);
+		System.out.println("\turitemplate = "+URIMinter.getTemplate());
+		System.out.println("\tformat = "+(options.hdt ? "hdt" : format.getName()));
+		if (options.hdt && options.hdtWork != null) {
+			System.out.println("\thdtwork = "+options.hdtWork);
+		}
+		if (big) {
+			System.out.println("\tthreads = "+options.threads);
+			System.out.println("\tordered = "+options.ordered);
+			System.out.println("\tmemorymapped = "+options.memoryMapped);
+			System.out.println("\tgzip = "+options.gzip);
+			System.out.println("\tagentcache = "+options.agents);
+			if (options.tdb2 != null) {
+				System.out.println("\ttdb2 = "+options.tdb2);
+				System.out.println("\ttdb2loader = "+options.tdb2Loader);
+				System.out.println("\ttdb2batch = "+options.tdb2Batch);
+			}
+			if (options.isSharded()) {
+				System.out.println("\tshardsize = "+options.shardBytes);
+				System.out.println("\tshardtriples = "+options.shardTriples);
+			}
+			if (options.checkpoint != null) {
+				System.out.println("\tcheckpoint = "+options.checkpoint);
+				System.out.println("\tcheckpointinterval = "+options.checkpointInterval);
+				System.out.println("\tresume = "+options.resume);
+			}
+		}
 		
 	}
 
+    /**
+     * Parses a size in bytes, which can end in K, M or G
+     */
+    public static long parseSize(String size) {
+        size = size.trim().toUpperCase();
+        long unit = 1;
+        if (size.endsWith("K")) {
+            unit = 1L << 10;
+        } else if (size.endsWith("M")) {
+            unit = 1L << 20;
+        } else if (size.endsWith("G")) {
+            unit = 1L << 30;
+        }
+        if (unit > 1) {
+            size = size.substring(0, size.length() - 1).trim();
+        }
+        return Long.parseLong(size) * unit;
+    }
+
 	/**
      * Parses the command line parameters
      */
@@ -210,10 +312,50 @@ public class Main {
         try {
             bOutputInConsole = false;
             System.err.println("Doing the conversion of a big file\n");
+            if (!EntryEmitter.supports(options.format)) {
+                System.err.println("The format " + options.format.getName() + " cannot be written while a big file is converted, use ntriples, nquads, turtle or thrift");
+                return false;
+            }
+            if (options.hdt && (options.isSharded() || options.gzip)) {
+                System.err.println("An HDT output can be neither compressed with gzip nor split into shards");
+                return false;
+            }
+            if (options.isSharded() && !options.format.isLineBased()) {
+                System.err.println("Only ntriples and nquads can be split into shards");
+                return false;
+            }
             TBX2RDF_Converter converter = new TBX2RDF_Converter();
             PrintStream fos;
-            if (output_file.isEmpty() || bOutputInConsole) {
+            TDB2OutputStream tdb2 = null;
+            HDTOutputStream hdt = null;
+            if (options.tdb2 != null) {
+                System.err.println("Loading the output into the TDB2 database " + options.tdb2);
+                tdb2 = new TDB2OutputStream(options.tdb2, options.tdb2Loader, options.tdb2Batch);
+                fos = new PrintStream(tdb2, false, "UTF-8");
+            } else if (options.hdt) {
+                hdt = new HDTOutputStream(output_file, Main.DATA_NAMESPACE, options.hdtWork);
+                fos = new PrintStream(hdt, false, "UTF-8");
+            } else if (output_file.isEmpty() || bOutputInConsole) {
                 fos = System.out;
+            } else if (options.isSharded()) {
+                final String base = output_file.replaceAll("(\\.nt)?(\\.gz)?$", "");
+                fos = new ShardedPrintStream(base, options.shardBytes, options.shardTriples, options.gzip, options.threads);
+            } else if (options.gzip) {
+                fos = new PrintStream(new ParallelGzipOutputStream(new FileOutputStream(output_file), options.threads), false, "UTF-8");
+            } else if (options.resume && options.checkpoint != null && options.canCheckpoint() && new File(options.checkpoint).exists()) {
+                //The output is cut where the checkpoint was saved, and continued from there
+                final long offset = Checkpoint.load(new File(options.checkpoint)).outputOffset;
+                final RandomAccessFile output = new RandomAccessFile(output_file, "rw");
+                try {
+                    if (output.length() < offset) {
+                        System.err.println("The output is shorter than when the checkpoint was saved, it cannot be resumed");
+                        return false;
+                    }
+                    output.setLength(offset);
+                } finally {
+                    output.close();
+                }
+                fos = new PrintStream(new BufferedOutputStream(new FileOutputStream(output_file, true), 1 << 16), false, "UTF-8");
             } else {
                 fos = new PrintStream(output_file, "UTF-8");
             }
@@ -221,7 +363,25 @@ public class Main {
                 System.err.println("output file could not be open");
                 return false;
             }
-            converter.convertAndSerializeLargeFile(input_file, fos, mappings, Main.DATA_NAMESPACE);
+            try {
+                converter.convertAndSerializeLargeFile(input_file, fos, mappings, Main.DATA_NAMESPACE, options);
+            } catch (Exception e) {
+                if (tdb2 != null) {
+                    //A partial load must not be committed
+                    tdb2.abort();
+                }
+                if (hdt != null) {
+                    hdt.abort();
+                }
+                throw e;
+            }
+            if (fos != System.out) {
+                fos.close();
+                if (fos.checkError()) {
+                    System.err.println("output file could not be written");
+                    return false;
+                }
+            }
         } catch (Exception e) {
             System.err.println(e.getMessage());
             return false;
@@ -246,7 +406,13 @@ public class Main {
             System.out.println("Writting output to " + output_file + "\n");
 //            final Model model = terminology.getModel("file:" + output_file);
             final Model model = terminology.getModel(Main.DATA_NAMESPACE);           
-            RDFDataMgr.write(new FileOutputStream(output_file), model, Lang.TURTLE);
+            final OutputStream out = options.hdt ? new HDTOutputStream(output_file, Main.DATA_NAMESPACE, options.hdtWork)
+                    : new BufferedOutputStream(new FileOutputStream(output_file), 1 << 16);
+            try {
+                format.write(out, model);
+            } finally {
+                out.close();
+            }
             reader.close();
         } catch (Exception e) {
             System.err.println(e.getMessage());
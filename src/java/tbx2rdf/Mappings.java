@@ -4,48 +4,69 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * The class containing the mappings
  *
+ * The mappings of the elements are kept in a single table keyed by (element, attribute, value), which is
+ * never modified once published: adding a mapping replaces the table. Once read, the mappings can thus be
+ * looked up by several threads without locking, with a single hash probe.
+ *
  * @author jmccrae
  */
 public class Mappings {
 
-    // omg.
-    HashMap<String, HashMap<String, HashMap<String, Mapping>>> mappings;
+    private static final Map<Key, Mapping> EMPTY = Collections.emptyMap();
+
+    ///Mapping of every (element, attribute, value)
+    private volatile Map<Key, Mapping> mappings;
     
-    //
-    HashMap<String, IndividualMapping> individualMappings = new HashMap<>();
+    ///Individuals by name, shared with the object property mappings
+    final Map<String, IndividualMapping> individualMappings = new ConcurrentHashMap<String, IndividualMapping>();
     
     //
     public String defaultLanguage = "en";
 
     
     public Mappings() {
-        mappings = new HashMap<String, HashMap<String, HashMap<String, Mapping>>>();
+        mappings = EMPTY;
     }
     
     /**
-     * Reads the mappings in a mapping file
+     * Reads the mappings in a mapping file. As the file is trusted, its exceptional mappings can name the class
+     * of their transformer.
      *
      * @param mapping_file Name of the file to be read
      * @return Nothing, but the global mappings HashMap is updated
      */
     public static Mappings readInMappings(String mapping_file) throws IOException {
-        return readInMappings(new FileReader(mapping_file));
+        return readInMappings(new FileReader(mapping_file), true);
     }
 
     /**
-     * Creates a Mappings object from a reader
+     * Creates a Mappings object from a reader. The exceptional mappings can only name registered transformers.
      */
     public static Mappings readInMappings(Reader fstream) throws IOException {
+        return readInMappings(fstream, false);
+    }
+
+    /**
+     * Creates a Mappings object from a reader
+     * @param classNames Whether the exceptional mappings can name the class of their transformer, which is then
+     * loaded. Never for mappings which do not come from a trusted file.
+     */
+    public static Mappings readInMappings(Reader fstream, boolean classNames) throws IOException {
         final Mappings mappings = new Mappings();
+        //The table is built once, and published when the whole file has been read
+        final Map<Key, Mapping> table = new HashMap<Key, Mapping>();
         final BufferedReader br = new BufferedReader(fstream);
         final Pattern mapping1 = Pattern.compile("^(\\S*?)\\s+<(\\S*?)>$");
         final Pattern mapping2 = Pattern.compile("^(\\S*?)\\s+(\\S*?)\\s+(\\S*?)\\s+<(\\S*)>\\s+OP(\\s*\\{(.*?)\\})?$");
@@ -60,7 +81,7 @@ public class Mappings {
             if ((matcher = mapping1.matcher(strLine)).find()) {
                 mappings.addMapping(matcher.group(1), new IndividualMapping(matcher.group(2)));
             } else if ((matcher = mapping3.matcher(strLine)).find()) {
-                mappings.addMapping(matcher.group(1), matcher.group(2), matcher.group(3), new DatatypePropertyMapping(matcher.group(4), matcher.group(6)));
+                table.put(new Key(matcher.group(1), matcher.group(2), matcher.group(3)), new DatatypePropertyMapping(matcher.group(4), matcher.group(6)));
             } else if ((matcher = mapping2.matcher(strLine)).find()) {
                 final Set<String> set = new HashSet<String>();
                 if (matcher.group(6) != null) {
@@ -69,15 +90,15 @@ public class Mappings {
                         set.add(values[i]);
                     }
                     final ObjectPropertyMapping objectPropertyMapping = new ObjectPropertyMapping(matcher.group(4), set, mappings.individualMappings);
-                    mappings.addMapping(matcher.group(1), matcher.group(2), matcher.group(3), objectPropertyMapping);
+                    table.put(new Key(matcher.group(1), matcher.group(2), matcher.group(3)), objectPropertyMapping);
                 } else {
                     final ObjectPropertyMapping objectPropertyMapping = new ObjectPropertyMapping(matcher.group(4), mappings.individualMappings);
-                    mappings.addMapping(matcher.group(1), matcher.group(2), matcher.group(3), objectPropertyMapping);
+                    table.put(new Key(matcher.group(1), matcher.group(2), matcher.group(3)), objectPropertyMapping);
 
                 }
             } else if ((matcher = mapping4.matcher(strLine)).find()) {
-                final ExceptionMapping em = new ExceptionMapping(matcher.group(4), "");
-                mappings.addMapping(matcher.group(1), matcher.group(2), matcher.group(3), em);
+                final ExceptionMapping em = new ExceptionMapping(matcher.group(4), "", classNames);
+                table.put(new Key(matcher.group(1), matcher.group(2), matcher.group(3)), em);
                 //                  System.out.println("XXXXXXXXXXXXX " + matcher.group(1) + " "+matcher.group(2)+" "+matcher.group(3)+" "+matcher.group(4) );
 
             } else {
@@ -85,6 +106,7 @@ public class Mappings {
             }
         }
         br.close();
+        mappings.mappings = table;
         return mappings;
     }
 
@@ -93,29 +115,10 @@ public class Mappings {
         individualMappings.put(name, target);
     }
 
-    public void addMapping(String element, String attribute, String value, Mapping mapping) {
-
-        //System.out.print("Adding mapping for: "+element+" "+attribute+" "+value+" "+mapping);
-        HashMap<String, HashMap<String, Mapping>> element2attr;
-
-        HashMap<String, Mapping> attr2mappings;
-
-        if (mappings.containsKey(element)) {
-            element2attr = mappings.get(element);
-        } else {
-            element2attr = new HashMap<String, HashMap<String, Mapping>>();
-            mappings.put(element, element2attr);
-        }
-
-        if (element2attr.containsKey(attribute)) {
-            attr2mappings = element2attr.get(attribute);
-        } else {
-            attr2mappings = new HashMap<String, Mapping>();
-            element2attr.put(attribute, attr2mappings);
-        }
-
-        attr2mappings.put(value, mapping);
-
+    public synchronized void addMapping(String element, String attribute, String value, Mapping mapping) {
+        final Map<Key, Mapping> table = new HashMap<Key, Mapping>(mappings);
+        table.put(new Key(element, attribute, value), mapping);
+        mappings = table;
     }
 
     /**
@@ -125,29 +128,41 @@ public class Mappings {
      * @param value String literal with the value
      */
     public Mapping getMapping(String element, String attribute, String value) {
-        HashMap<String, HashMap<String, Mapping>> element2attr;
-
-        HashMap<String, Mapping> attr2mappings;
-
-        if (mappings.containsKey(element)) {
-            element2attr = mappings.get(element);
+        if (element == null || attribute == null || value == null) {
+            return null;
+        }
+        return mappings.get(new Key(element, attribute, value));
+    }
 
-            if (element2attr.containsKey(attribute)) {
-                attr2mappings = element2attr.get(attribute);
+    /**
+     * An (element, attribute, value) triple
+     */
+    private static final class Key {
+
+        final String element;
+        final String attribute;
+        final String value;
+        final int hash;
+
+        Key(String element, String attribute, String value) {
+            this.element = element;
+            this.attribute = attribute;
+            this.value = value;
+            this.hash = (element.hashCode() * 31 + attribute.hashCode()) * 31 + value.hashCode();
+        }
 
-                if (attr2mappings.containsKey(value)) {
-                    return attr2mappings.get(value);
-                } else {
-                    return null;
-                }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
 
-            } else {
-                return null;
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
             }
-
-        } else {
-            return null;
+            final Key key = (Key) o;
+            return hash == key.hash && value.equals(key.value) && attribute.equals(key.attribute) && element.equals(key.element);
         }
-
     }
 }
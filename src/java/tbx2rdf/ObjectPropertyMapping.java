@@ -3,22 +3,27 @@ package tbx2rdf;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.ResourceFactory;
 
 public class ObjectPropertyMapping implements Mapping {
 
 	final Map<String, IndividualMapping> indivMappingRef;
-	String propertyURL;
+	final String propertyURL;
+	final Property property;
 
-	Set<String> allowedValues;
+	final Set<String> allowedValues;
 
 	public ObjectPropertyMapping(String url, Set<String> values, Map<String, IndividualMapping> indivMappingRef) {
 		propertyURL = url;
+		property = ResourceFactory.createProperty(url);
 		allowedValues = values;
 		this.indivMappingRef = Collections.unmodifiableMap(indivMappingRef);
 	}
 
 	public ObjectPropertyMapping(String url, Map<String, IndividualMapping> indivMappingRef) {
 		propertyURL = url;
+		property = ResourceFactory.createProperty(url);
 		allowedValues = null;
 		this.indivMappingRef = Collections.unmodifiableMap(indivMappingRef);
 	}
@@ -27,6 +32,10 @@ public class ObjectPropertyMapping implements Mapping {
 	public String getURL() {
 		return propertyURL;
 	}
+
+	public Property getProperty() {
+		return property;
+	}
     
 	public boolean allowed(String value) {
 
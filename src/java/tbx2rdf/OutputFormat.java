@@ -0,0 +1,173 @@
+package tbx2rdf;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+
+/**
+ * The RDF syntaxes the conversions can be written in.
+ *
+ * The streaming formats are written as the triples are produced, without sorting them or holding them in
+ * memory. The pretty formats group the triples of every subject and abbreviate them, which requires the whole
+ * model in memory: they are only meant for small documents which are read by people.
+ */
+public enum OutputFormat {
+
+    NTRIPLES("ntriples", RDFFormat.NTRIPLES, true),
+    NQUADS("nquads", RDFFormat.NQUADS, true),
+    TURTLE("turtle", RDFFormat.TURTLE_BLOCKS, true),
+    THRIFT("thrift", RDFFormat.RDF_THRIFT, true),
+    TURTLE_PRETTY("turtle-pretty", RDFFormat.TURTLE_PRETTY, false),
+    RDFXML("rdfxml", RDFFormat.RDFXML_PRETTY, false);
+
+    private final String name;
+    private final RDFFormat format;
+    private final boolean streaming;
+
+    private OutputFormat(String name, RDFFormat format, boolean streaming) {
+        this.name = name;
+        this.format = format;
+        this.streaming = streaming;
+    }
+
+    /**
+     * The name of the format in the configuration and in the requests
+     */
+    public String getName() {
+        return name;
+    }
+
+    public RDFFormat getFormat() {
+        return format;
+    }
+
+    public Lang getLang() {
+        return format.getLang();
+    }
+
+    /**
+     * The media type of the format, such as text/turtle
+     */
+    public String getMediaType() {
+        return getLang().getContentType().getContentType();
+    }
+
+    /**
+     * The usual extension of the files in this format, without the dot
+     */
+    public String getExtension() {
+        return getLang().getFileExtensions().get(0);
+    }
+
+    /**
+     * Whether the format is written as the triples are produced
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Whether the format is binary rather than text
+     */
+    public boolean isBinary() {
+        return this == THRIFT;
+    }
+
+    /**
+     * Whether the format has a triple per line and no header, so that it can be cut anywhere between lines
+     */
+    public boolean isLineBased() {
+        return this == NTRIPLES || this == NQUADS;
+    }
+
+    /**
+     * Writes a model
+     * @param out The output. It is not closed.
+     */
+    public void write(OutputStream out, Model model) {
+        RDFDataMgr.write(out, model, format);
+    }
+
+    /**
+     * Whether the format is acceptable for a media range of an Accept header, such as text/turtle or text/*
+     */
+    boolean matches(String range) {
+        if (range.equals("*/*")) {
+            return true;
+        }
+        if (range.endsWith("/*")) {
+            return getMediaType().startsWith(range.substring(0, range.length() - 1));
+        }
+        if (range.equals(getMediaType())) {
+            return true;
+        }
+        for (String type : getLang().getAltContentTypes()) {
+            if (range.equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The format with a name, such as ntriples or turtle-pretty
+     * @throws IllegalArgumentException If there is no format with that name
+     */
+    public static OutputFormat forName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name.equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        final StringBuilder names = new StringBuilder();
+        for (OutputFormat format : values()) {
+            names.append(names.length() == 0 ? "" : ", ").append(format.name);
+        }
+        throw new IllegalArgumentException("Unknown format " + name + ", the formats are " + names);
+    }
+
+    /**
+     * Chooses the format of a response from the Accept header of a request
+     * @param accept The Accept header, or null
+     * @param candidates The formats which can be given, by order of preference when several are acceptable
+     * @return The format with the highest quality, the first candidate if the header is missing, or null if no
+     * candidate is acceptable
+     */
+    public static OutputFormat negotiate(String accept, List<OutputFormat> candidates) {
+        if (accept == null || accept.trim().isEmpty()) {
+            return candidates.get(0);
+        }
+        OutputFormat best = null;
+        float bestQuality = 0;
+        for (String range : accept.split(",")) {
+            final String[] parts = range.split(";");
+            final String type = parts[0].trim().toLowerCase(Locale.ROOT);
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                final String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2));
+                    } catch (NumberFormatException x) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality <= bestQuality) {
+                continue;
+            }
+            for (OutputFormat format : candidates) {
+                if (format.matches(type)) {
+                    best = format;
+                    bestQuality = quality;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+}
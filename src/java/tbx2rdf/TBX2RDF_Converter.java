@@ -1,42 +1,43 @@
 package tbx2rdf;
 
 //JAVA
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
-import org.xml.sax.EntityResolver;
 import org.xml.sax.SAXException;
 
 //JENA
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.RDF;
 
@@ -45,6 +46,7 @@ import java.io.PrintStream;
 import java.util.Collections;
 import org.apache.log4j.Logger;
 import tbx2rdf.datasets.iate.SubjectFields;
+import tbx2rdf.datasets.lexvo.LexvoManager;
 import tbx2rdf.vocab.ONTOLEX;
 import tbx2rdf.vocab.SKOS;
 import tbx2rdf.vocab.TBX;
@@ -73,6 +75,15 @@ import tbx2rdf.types.TransacNote;
 import tbx2rdf.types.Transaction;
 import tbx2rdf.types.abs.impID;
 import tbx2rdf.types.abs.impIDLangTypeTgtDtyp;
+import tbx2rdf.utils.AgentDictionary;
+import tbx2rdf.utils.CountingOutputStream;
+import tbx2rdf.utils.InputDocuments;
+import tbx2rdf.utils.MappedTermEntryScanner;
+import tbx2rdf.utils.EntryEmitter;
+import tbx2rdf.utils.NodeSerializer;
+import tbx2rdf.utils.TermEntryReader;
+import tbx2rdf.utils.TermEntrySource;
+import tbx2rdf.utils.URIMinter;
 import tbx2rdf.utils.XMLUtils;
 import tbx2rdf.vocab.DC;
 import tbx2rdf.vocab.IATE;
@@ -103,6 +114,15 @@ public class TBX2RDF_Converter {
     private final static Logger logger = Logger.getLogger(TBX2RDF_Converter.class);
     
     
+    ///Format of the output of big files
+    private volatile OutputFormat format = OutputFormat.NTRIPLES;
+
+    ///Serializers of the entries of big files, one per conversion thread
+    private volatile ThreadLocal<EntryEmitter> emitters = newEmitters(format);
+
+    ///Agents already described by the current conversion
+    private volatile AgentDictionary agents = new AgentDictionary();
+
     /**
      * Do not construct
      */
@@ -119,10 +139,20 @@ public class TBX2RDF_Converter {
      * @return str A Turtle string with the equivalent information
      */
     public String convert(String str, Mappings mappings, String resourceURI) throws Exception {
+        return convert(str, mappings, resourceURI, OutputFormat.TURTLE_PRETTY);
+    }
+
+    /**
+     * Converts a TBX string into a RDF string in the given format
+     *
+     * @param str The TBX XML as a String.
+     * @param format A text format
+     */
+    public String convert(String str, Mappings mappings, String resourceURI, OutputFormat format) throws Exception {
         TBX_Terminology result = convert(new StringReader(str), mappings);
-        StringWriter sw = new StringWriter();
-        RDFDataMgr.write(sw, result.getModel(resourceURI), RDFFormat.TURTLE_PRETTY);
-        return sw.toString();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.write(out, result.getModel(resourceURI));
+        return out.toString("UTF-8");
     }
 
     /**
@@ -131,19 +161,8 @@ public class TBX2RDF_Converter {
      * @param mappings Mappings
      */
     public TBX_Terminology convert(Reader input, Mappings mappings) throws IOException, ParserConfigurationException, TBXFormatException, SAXException {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        TransacNote.mapAgents.clear();
-        db.setEntityResolver(new EntityResolver() {
-                @Override
-                public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
-                    if (systemId.endsWith(".dtd")) {
-                        return new InputSource(new StringReader(""));
-                    } else {
-                        return null;
-                    }
-                }
-            });
+        DocumentBuilder db = XMLUtils.getDocumentBuilder();
+        agents.clear();
 
         // parse the input document
         Document doc = db.parse(new InputSource(input));
@@ -255,15 +274,17 @@ public class TBX2RDF_Converter {
      */
     Collection<Term> processText(Element root, Mappings mappings) throws IOException, SAXException {
         final Collection<Term> terms = new HashSet<Term>();
-        for (Element e : XMLUtils.children(root)) {
-            if (e.getTagName().equalsIgnoreCase("body")) {
-                terms.addAll(processBody(e, mappings));
-            } else if (e.getTagName().equalsIgnoreCase("back")) {
-                terms.addAll(processBack(e, mappings));
-            } else {
-                unexpected(e);
+        for (Element e = XMLUtils.firstChildElement(root); e != null; e = XMLUtils.nextSiblingElement(e)) {
+            switch (Tag.ofIgnoreCase(e.getTagName())) {
+                case BODY:
+                    terms.addAll(processBody(e, mappings));
+                    break;
+                case BACK:
+                    terms.addAll(processBack(e, mappings));
+                    break;
+                default:
+                    unexpected(e);
             }
-
         }
         return terms;
     }
@@ -274,8 +295,8 @@ public class TBX2RDF_Converter {
      */
     private Collection<? extends Term> processBody(Element root, Mappings mappings) {
         final Collection<Term> terms = new HashSet<Term>();
-        for (Element e : XMLUtils.children(root)) {
-            if (e.getTagName().equalsIgnoreCase("termEntry")) {
+        for (Element e = XMLUtils.firstChildElement(root); e != null; e = XMLUtils.nextSiblingElement(e)) {
+            if (Tag.ofIgnoreCase(e.getTagName()) == Tag.TERM_ENTRY) {
                 terms.add(processTermEntry(e, mappings));
             } else {
                 unexpected(e);
@@ -308,15 +329,17 @@ public class TBX2RDF_Converter {
 
         String sid=node.getAttribute("id");
         term.setID(sid);
+        //The elements of an entry without id are identified by its content
+        term.key = sid.isEmpty() ? URIMinter.hash(NodeSerializer.toString(node)) : sid;
 
-        for (Element sub : XMLUtils.children(node)) {
-            final String name = sub.getTagName();
+        for (Element sub = XMLUtils.firstChildElement(node); sub != null; sub = XMLUtils.nextSiblingElement(sub)) {
+            final Tag tag = Tag.ofIgnoreCase(sub.getTagName());
 
-            if (name.equalsIgnoreCase("langSet")) {
+            if (tag == Tag.LANG_SET) {
                 langsetcount++;
                 this.processLangSet(term, sub, mappings);
             } else {
-                processAuxInfo(term, sub, mappings);
+                processAuxInfo(term, sub, tag, mappings);
             }
         }
 
@@ -362,26 +385,32 @@ public class TBX2RDF_Converter {
         processID((impID) descr, node);
 
         int i = 0;
-        for (Element tig_child : XMLUtils.children(node)) {
+        for (Element tig_child = XMLUtils.firstChildElement(node); tig_child != null; tig_child = XMLUtils.nextSiblingElement(tig_child)) {
 
-            String name = tig_child.getNodeName();
+            final Tag tag = Tag.of(tig_child.getNodeName());
 
-            if (i == 0 && !name.equals("admin")) {
+            if (i == 0 && tag != Tag.ADMIN) {
                 throw new TBXFormatException("First element of TIG is not term !\n");
             }
 
-            if (name.equals("admin")) {
-                processAdmin(descr, tig_child, mappings);
-            } else if (name.equals("adminNote")) {
-                processAdminGrp(descr, tig_child, mappings);
-            } else if (name.equals("note")) {
-                processNote(descr, tig_child, mappings);
-            } else if (name.equals("ref")) {
-                this.processReference(descr, tig_child, mappings);
-            } else if (name.equals("xref")) {
-                this.processXReference(descr, tig_child, mappings);
-            } else {
-                throw new TBXFormatException("Element " + name + "not defined by TBX standard");
+            switch (tag) {
+                case ADMIN:
+                    processAdmin(descr, tig_child, mappings);
+                    break;
+                case ADMIN_NOTE:
+                    processAdminGrp(descr, tig_child, mappings);
+                    break;
+                case NOTE:
+                    processNote(descr, tig_child, mappings);
+                    break;
+                case REF:
+                    this.processReference(descr, tig_child, mappings);
+                    break;
+                case XREF:
+                    this.processXReference(descr, tig_child, mappings);
+                    break;
+                default:
+                    throw new TBXFormatException("Element " + tig_child.getNodeName() + "not defined by TBX standard");
             }
             i++;
         }
@@ -411,22 +440,23 @@ public class TBX2RDF_Converter {
 
         processID(term, langSet);
 
-        for (Element sub : XMLUtils.children(langSet)) {
+        for (Element sub = XMLUtils.firstChildElement(langSet); sub != null; sub = XMLUtils.nextSiblingElement(sub)) {
 
             final String name = sub.getNodeName();
+            final Tag tag = Tag.of(name);
 
-            if (name.equals("ntig")) {
+            if (tag == Tag.NTIG) {
                 termCount++;
                 entry = new LexicalEntry(language, mappings);
                 this.processNTIG(entry, sub, mappings);
                 term.Lex_entries.add(entry);
-            } else if (name.equals("tig")) {
+            } else if (tag == Tag.TIG) {
                 termCount++;
                 entry = new LexicalEntry(language, mappings);
                 this.processTIG(entry, sub, mappings);
                 term.Lex_entries.add(entry);
             } else {
-                processAuxInfo(term, sub, mappings);
+                processAuxInfo(term, sub, tag == Tag.OTHER ? Tag.ofIgnoreCase(name) : tag, mappings);
             }
         }
 
@@ -445,21 +475,21 @@ public class TBX2RDF_Converter {
         int i = 0;
 
         processID(entry, tig);
-        Iterable<Element> children = XMLUtils.children(tig);
-        for (Element tig_child : children) {
+        for (Element tig_child = XMLUtils.firstChildElement(tig); tig_child != null; tig_child = XMLUtils.nextSiblingElement(tig_child)) {
 
-            String name = tig_child.getNodeName();
+            final String name = tig_child.getNodeName();
+            final Tag tag = Tag.of(name);
 
-            if (i == 0 && !name.equals("term")) {
+            if (i == 0 && tag != Tag.TERM) {
                 throw new TBXFormatException("First element of TIG is not term !\n");
             }
 
-            if (name.equals("term")) {
+            if (tag == Tag.TERM) {
                 this.processTerm(entry, tig_child, mappings);
-            } else if (name.equals("termNote")) {
+            } else if (tag == Tag.TERM_NOTE) {
                 entry.TermNotes.add(new TermNoteGrp(this.processTermNote(tig_child, mappings), mappings.defaultLanguage, mappings));
             } else {
-                processAuxInfo(entry, tig_child, mappings);
+                processAuxInfo(entry, tig_child, tag == Tag.OTHER ? Tag.ofIgnoreCase(name) : tag, mappings);
             }
             i++;
         }
@@ -498,19 +528,20 @@ public class TBX2RDF_Converter {
         // id ID #IMPLIED	
         // >
         int i = 0;
-        for (Element ntig_child : XMLUtils.children(ntig)) {
+        for (Element ntig_child = XMLUtils.firstChildElement(ntig); ntig_child != null; ntig_child = XMLUtils.nextSiblingElement(ntig_child)) {
 
-            String name = ntig_child.getNodeName();
+            final String name = ntig_child.getNodeName();
+            final Tag tag = Tag.of(name);
 
-            if (i == 0 && !name.equals("termGrp")) {
+            if (i == 0 && tag != Tag.TERM_GRP) {
                 if (Main.lenient==false)
                     throw new TBXFormatException("First element of NTIG is not termGrp !\n");
             }
 
-            if (name.equals("termGrp")) {
+            if (tag == Tag.TERM_GRP) {
                 this.processTermGroup(entry, ntig_child, mappings);
             } else {
-                processAuxInfo(entry, ntig_child, mappings);
+                processAuxInfo(entry, ntig_child, tag == Tag.OTHER ? Tag.ofIgnoreCase(name) : tag, mappings);
             }
             i++;
         }
@@ -541,26 +572,32 @@ public class TBX2RDF_Converter {
         processID(descrip, node);
         // get first child that needs to be a descrip
         // process other XMLUtils.children that can be: descripNote, admin, adminGroup, transacGrp, note, ref and xref
-        for (Element sub : XMLUtils.children(node)) {
-            final String name = sub.getTagName();
-            if (name.equalsIgnoreCase("descrip")) {
-                // ignore
-            } else if (name.equalsIgnoreCase("descripNote")) {
-                processDescripNote(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("admin")) {
-                this.processAdmin(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("adminGrp")) {
-                this.processAdminGrp(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("transacGrp")) {
-                this.processTransactionGroup(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("note")) {
-                this.processTransactionGroup(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("ref")) {
-                this.processReference(descrip, sub, mappings);
-            } else if (name.equalsIgnoreCase("xref")) {
-                this.processXReference(descrip, sub, mappings);
-            } else {
-                throw new TBXFormatException("Unexpected subnode " + node.getTagName());
+        for (Element sub = XMLUtils.firstChildElement(node); sub != null; sub = XMLUtils.nextSiblingElement(sub)) {
+            switch (Tag.ofIgnoreCase(sub.getTagName())) {
+                case DESCRIP:
+                    // ignore
+                    break;
+                case DESCRIP_NOTE:
+                    processDescripNote(descrip, sub, mappings);
+                    break;
+                case ADMIN:
+                    this.processAdmin(descrip, sub, mappings);
+                    break;
+                case ADMIN_GRP:
+                    this.processAdminGrp(descrip, sub, mappings);
+                    break;
+                case TRANSAC_GRP:
+                case NOTE:
+                    this.processTransactionGroup(descrip, sub, mappings);
+                    break;
+                case REF:
+                    this.processReference(descrip, sub, mappings);
+                    break;
+                case XREF:
+                    this.processXReference(descrip, sub, mappings);
+                    break;
+                default:
+                    throw new TBXFormatException("Unexpected subnode " + node.getTagName());
             }
         }
 
@@ -608,28 +645,35 @@ public class TBX2RDF_Converter {
         final TransacGrp transacGrp = new TransacGrp(processTransac(elemTransac, mappings));
 
         int i = 0;
-        for (Element child : XMLUtils.children(elem)) {
+        for (Element child = XMLUtils.firstChildElement(elem); child != null; child = XMLUtils.nextSiblingElement(child)) {
 
-            String name = child.getNodeName();
+            final Tag tag = Tag.of(child.getNodeName());
 
-            if (i == 0 && !name.equals("transac")) {
+            if (i == 0 && tag != Tag.TRANSAC) {
                 throw new TBXFormatException("First element of transacGrp is not termGrp !\n");
             }
 
-            if (name.equals("transac")) {
-                //processTransac(transacGrp, child, mappings);
-            } else if (name.equals("transacNote")) {
-                processTransacNote(transacGrp, child, mappings);
-            } else if (name.equals("date")) {
-                processDate(transacGrp, child, mappings);
-            } else if (name.equals("note")) {
-                processNote(transacGrp, child, mappings);
-            } else if (name.equals("xref")) {
-                processXReference(transacGrp, child, mappings);
-            } else if (name.equals("ref")) {
-                this.processReference(transacGrp, child, mappings);
-            } else {
-                throw new TBXFormatException("Element " + name + " not defined by TBX standard\n");
+            switch (tag) {
+                case TRANSAC:
+                    //processTransac(transacGrp, child, mappings);
+                    break;
+                case TRANSAC_NOTE:
+                    processTransacNote(transacGrp, child, mappings);
+                    break;
+                case DATE:
+                    processDate(transacGrp, child, mappings);
+                    break;
+                case NOTE:
+                    processNote(transacGrp, child, mappings);
+                    break;
+                case XREF:
+                    processXReference(transacGrp, child, mappings);
+                    break;
+                case REF:
+                    this.processReference(transacGrp, child, mappings);
+                    break;
+                default:
+                    throw new TBXFormatException("Element " + child.getNodeName() + " not defined by TBX standard\n");
             }
             i++;
         }
@@ -641,16 +685,21 @@ public class TBX2RDF_Converter {
         // <!ATTLIST termGrp
         //  id ID #IMPLIED
         //>
-        for (Element elem : XMLUtils.children(node)) {
-            final String name = elem.getTagName();
-            if (name.equalsIgnoreCase("term")) {
-                processTerm(entry, elem, mappings);
-            } else if (name.equalsIgnoreCase("termNote")) {
-                entry.TermNotes.add(new TermNoteGrp(processTermNote(elem, mappings), mappings.defaultLanguage, mappings));
-            } else if (name.equalsIgnoreCase("termNoteGrp")) {
-                entry.TermNotes.add(processTermNoteGrp(elem, mappings));
-            } else if (name.equalsIgnoreCase("termCompList")) {
-                processTermCompList(entry, elem, mappings);
+        for (Element elem = XMLUtils.firstChildElement(node); elem != null; elem = XMLUtils.nextSiblingElement(elem)) {
+            switch (Tag.ofIgnoreCase(elem.getTagName())) {
+                case TERM:
+                    processTerm(entry, elem, mappings);
+                    break;
+                case TERM_NOTE:
+                    entry.TermNotes.add(new TermNoteGrp(processTermNote(elem, mappings), mappings.defaultLanguage, mappings));
+                    break;
+                case TERM_NOTE_GRP:
+                    entry.TermNotes.add(processTermNoteGrp(elem, mappings));
+                    break;
+                case TERM_COMP_LIST:
+                    processTermCompList(entry, elem, mappings);
+                    break;
+                default:
             }
         }
     }
@@ -700,7 +749,7 @@ public class TBX2RDF_Converter {
         //<!ATTLIST transacNote
         //%impIDLangTypTgtDtyp;
         //> 
-        final TransacNote transacNote = new TransacNote(child.getChildNodes(), processType(child, mappings, true), child.getAttribute("xml:lang"), mappings);
+        final TransacNote transacNote = new TransacNote(child.getChildNodes(), processType(child, mappings, true), child.getAttribute("xml:lang"), mappings, agents);
         processImpIDLangTypeTgtDType(transacNote, child, mappings);
         transacGrp.transacNotes.add(transacNote);
     }
@@ -719,22 +768,10 @@ public class TBX2RDF_Converter {
         //id ID #IMPLIED
         //> 
         final TermNoteGrp termNoteGrp = new TermNoteGrp(processTermNote(XMLUtils.firstChild("termNote", elem), mappings), elem.getAttribute("xml:lang"), mappings);
-        for (Element e : XMLUtils.children(elem)) {
-            final String name = e.getTagName();
-            if (name.equalsIgnoreCase("termNote")) {
-                // Do nothing
-            } else if (name.equalsIgnoreCase("admin")) {
-                processAdmin(termNoteGrp, e, mappings);
-            } else if (name.equalsIgnoreCase("adminGrp")) {
-                processAdminGrp(termNoteGrp, e, mappings);
-            } else if (name.equalsIgnoreCase("transacGrp")) {
-                processTransactionGroup(termNoteGrp, e, mappings);
-            } else if (name.equalsIgnoreCase("note")) {
-                processNote(termNoteGrp, e, mappings);
-            } else if (name.equalsIgnoreCase("ref")) {
-                processReference(termNoteGrp, e, mappings);
-            } else if (name.equalsIgnoreCase("xref")) {
-                processXReference(termNoteGrp, e, mappings);
+        for (Element e = XMLUtils.firstChildElement(elem); e != null; e = XMLUtils.nextSiblingElement(e)) {
+            final Tag tag = Tag.ofIgnoreCase(e.getTagName());
+            if (tag != Tag.TERM_NOTE) {
+                processNoteLinkInfo(termNoteGrp, e, tag, mappings);
             }
         }
         return termNoteGrp;
@@ -748,25 +785,15 @@ public class TBX2RDF_Converter {
         //>
         final TermCompList termCompList = new TermCompList(mappings.getMapping("termCompList", "type", elem.getAttribute("type")));
         processID(termCompList, elem);
-        for (Element e : XMLUtils.children(elem)) {
-            final String name = e.getTagName();
-            if (name.equalsIgnoreCase("termComp")) {
+        for (Element e = XMLUtils.firstChildElement(elem); e != null; e = XMLUtils.nextSiblingElement(e)) {
+            final Tag tag = Tag.ofIgnoreCase(e.getTagName());
+            if (tag == Tag.TERM_COMP) {
                 final TermComp termComp = processTermComp(e, mappings);
                 termCompList.termComp.add(new TermCompGrp(termComp, null, mappings));
-            } else if (name.equalsIgnoreCase("termCompGrp")) {
+            } else if (tag == Tag.TERM_COMP_GRP) {
                 processTermCompGrp(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("admin")) {
-                processAdmin(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("adminGrp")) {
-                processAdminGrp(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("transacGrp")) {
-                processTransactionGroup(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("note")) {
-                processNote(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("ref")) {
-                processReference(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("xref")) {
-                processXReference(termCompList, e, mappings);
+            } else {
+                processNoteLinkInfo(termCompList, e, tag, mappings);
             }
         }
         entry.Decomposition.add(termCompList);
@@ -789,24 +816,14 @@ public class TBX2RDF_Converter {
         //id ID #IMPLIED
         //>
         final TermCompGrp termCompGrp = new TermCompGrp(processTermComp(XMLUtils.firstChild("termComp", elem), mappings), null, mappings);
-        for (Element e : XMLUtils.children(elem)) {
-            final String name = e.getTagName();
-            if (name.equalsIgnoreCase("termNote")) {
+        for (Element e = XMLUtils.firstChildElement(elem); e != null; e = XMLUtils.nextSiblingElement(e)) {
+            final Tag tag = Tag.ofIgnoreCase(e.getTagName());
+            if (tag == Tag.TERM_NOTE) {
                 termCompGrp.termNoteGrps.add(new TermNoteGrp(processTermNote(e, mappings), null, mappings));
-            } else if (name.equalsIgnoreCase("termNoteGrp")) {
+            } else if (tag == Tag.TERM_NOTE_GRP) {
                 termCompGrp.termNoteGrps.add(processTermNoteGrp(e, mappings));
-            } else if (name.equalsIgnoreCase("admin")) {
-                processAdmin(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("adminGrp")) {
-                processAdminGrp(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("transacGrp")) {
-                processTransactionGroup(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("note")) {
-                processNote(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("ref")) {
-                processReference(termCompList, e, mappings);
-            } else if (name.equalsIgnoreCase("xref")) {
-                processXReference(termCompList, e, mappings);
+            } else {
+                processNoteLinkInfo(termCompList, e, tag, mappings);
             }
         }
         termCompList.termComp.add(termCompGrp);
@@ -859,32 +876,117 @@ public class TBX2RDF_Converter {
         }
     }
 
-    private void processAuxInfo(Describable term, Element sub, Mappings mappings) {
+    private void processAuxInfo(Describable term, Element sub, Tag tag, Mappings mappings) {
         //   <!ENTITY % auxInfo '(descrip | descripGrp | admin | adminGrp | transacGrp | note | ref
         //        | xref)*' >
-        final String name = sub.getTagName();
-        if (name.equalsIgnoreCase("descrip")) {
-            term.Descriptions.add(new DescripGrp(processDescrip(sub, mappings)));
-        } else if (name.equalsIgnoreCase("descripGrp")) {
-            this.processDescripGroup(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("admin")) {
-            this.processAdmin(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("adminGrp")) {
-            this.processAdminGrp(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("transacGrp")) {
-            this.processTransactionGroup(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("note")) {
-            this.processNote(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("ref")) {
-            this.processReference(term, sub, mappings);
-        } else if (name.equalsIgnoreCase("xref")) {
-            this.processXReference(term, sub, mappings);
-        } else {
-            throw new TBXFormatException("Element " + name + " not defined by TBX standard");
+        switch (tag) {
+            case DESCRIP:
+                term.Descriptions.add(new DescripGrp(processDescrip(sub, mappings)));
+                break;
+            case DESCRIP_GRP:
+                this.processDescripGroup(term, sub, mappings);
+                break;
+            case ADMIN:
+            case ADMIN_GRP:
+            case TRANSAC_GRP:
+            case NOTE:
+            case REF:
+            case XREF:
+                processNoteLinkInfo(term, sub, tag, mappings);
+                break;
+            default:
+                throw new TBXFormatException("Element " + sub.getTagName() + " not defined by TBX standard");
         }
 
     }
 
+    /**
+     * Processes the elements of %noteLinkInfo; (admin, adminGrp, transacGrp, note, ref and xref), ignoring any other
+     */
+    private void processNoteLinkInfo(NoteLinkInfo descr, Element sub, Tag tag, Mappings mappings) {
+        switch (tag) {
+            case ADMIN:
+                processAdmin(descr, sub, mappings);
+                break;
+            case ADMIN_GRP:
+                processAdminGrp(descr, sub, mappings);
+                break;
+            case TRANSAC_GRP:
+                processTransactionGroup(descr, sub, mappings);
+                break;
+            case NOTE:
+                processNote(descr, sub, mappings);
+                break;
+            case REF:
+                processReference(descr, sub, mappings);
+                break;
+            case XREF:
+                processXReference(descr, sub, mappings);
+                break;
+            default:
+        }
+    }
+
+    /**
+     * The elements of a TBX document, found with a single lookup of the name of each child instead of
+     * comparing it with every expected name
+     */
+    enum Tag {
+        BODY("body"), BACK("back"), TERM_ENTRY("termEntry"), LANG_SET("langSet"), TIG("tig"), NTIG("ntig"),
+        TERM_GRP("termGrp"), TERM("term"), TERM_NOTE("termNote"), TERM_NOTE_GRP("termNoteGrp"),
+        TERM_COMP_LIST("termCompList"), TERM_COMP("termComp"), TERM_COMP_GRP("termCompGrp"),
+        DESCRIP("descrip"), DESCRIP_GRP("descripGrp"), DESCRIP_NOTE("descripNote"), ADMIN("admin"),
+        ADMIN_GRP("adminGrp"), ADMIN_NOTE("adminNote"), TRANSAC_GRP("transacGrp"), TRANSAC("transac"),
+        TRANSAC_NOTE("transacNote"), DATE("date"), NOTE("note"), REF("ref"), XREF("xref"),
+        ///Any other element
+        OTHER(null);
+
+        private static final Map<String, Tag> byName = new HashMap<String, Tag>();
+        private static final Map<String, Tag> byFoldedName = new HashMap<String, Tag>();
+
+        static {
+            for (Tag tag : values()) {
+                if (tag.name != null) {
+                    byName.put(tag.name, tag);
+                    byFoldedName.put(fold(tag.name), tag);
+                }
+            }
+        }
+
+        private final String name;
+
+        Tag(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The element with exactly this name, or OTHER
+         */
+        static Tag of(String name) {
+            final Tag tag = byName.get(name);
+            return tag == null ? OTHER : tag;
+        }
+
+        /**
+         * The element with this name, ignoring case as String.equalsIgnoreCase does, or OTHER
+         */
+        static Tag ofIgnoreCase(String name) {
+            Tag tag = byName.get(name);
+            if (tag == null) {
+                tag = byFoldedName.get(fold(name));
+            }
+            return tag == null ? OTHER : tag;
+        }
+
+        private static String fold(String name) {
+            final char[] chars = new char[name.length()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+            }
+            return new String(chars);
+        }
+    }
+
 
     /**
      * 
@@ -917,157 +1019,398 @@ public class TBX2RDF_Converter {
      * @return The TBX terminology
      */
     public TBX_Terminology convertAndSerializeLargeFile(String file, PrintStream fos, Mappings mappings, String namespace) {
-        String resourceURI = new String(namespace);
-        FileInputStream inputStream = null;
-        Scanner sc = null;
-        int count = 0;
-        int errors = 0;
-
-        //We first count the lexicons we have
-        SAXHandler handler = null;
-        HashMap<String, Resource> lexicons = new HashMap();
         try {
-            InputStream xmlInput = new FileInputStream(file);
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser = factory.newSAXParser();
-            handler = new SAXHandler(mappings);
-            saxParser.parse(xmlInput, handler);
-            lexicons = handler.getLexicons(namespace);
-            xmlInput.close();
+            return convertAndSerializeLargeFile(file, fos, mappings, namespace, new ConversionOptions());
         } catch (Exception e) {
-        	logger.warn("There was an error while reading/creting the lexicons, this could affect the rest of the code");
-            logger.warn(e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Converts a XML TBX file (handling large files...), converting the termEntry elements in parallel.
+     * The file can be compressed with gzip or bzip2, or be a zip archive of several TBX documents, which
+     * are decompressed on the fly.
+     *
+     * @param file Path to the input file
+     * @param mappings Mappings
+     * @param options Number of threads, order of the output and way of reading the input
+     * @return The TBX terminology
+     * @throws Exception If the input cannot be read or the output cannot be written, so that a partial output is not taken for a whole one
+     */
+    public TBX_Terminology convertAndSerializeLargeFile(String file, PrintStream fos, Mappings mappings, String namespace, ConversionOptions options) throws Exception {
+        final List<Closeable> inputs = new ArrayList<Closeable>();
+        //After resuming, the agents described before the checkpoint are described again where they are next found
+        agents = new AgentDictionary(options.agents);
+        setFormat(options.format);
+        try {
+            //The checkpoints remember the number of bytes of the output
+            Checkpoint checkpoint = null;
+            OutputStream out = fos;
+            if (options.checkpoint != null) {
+                if (!options.canCheckpoint()) {
+                    logger.warn("Checkpoints need an ordered, uncompressed and unsharded output, they are disabled");
+                } else if (options.resume && new File(options.checkpoint).exists()) {
+                    checkpoint = Checkpoint.load(new File(options.checkpoint));
+                    System.err.println("Resuming from document " + checkpoint.document + " after " + checkpoint.entries + " entries");
+                } else {
+                    checkpoint = new Checkpoint();
+                }
+                if (checkpoint != null) {
+                    out = new CountingOutputStream(fos, checkpoint.outputOffset);
+                }
+            }
+
+            final InputDocuments documents = new InputDocuments(new File(file));
+            inputs.add(documents);
+            if (options.memoryMapped) {
+                if (documents.getFormat() != InputDocuments.Format.PLAIN) {
+                    logger.warn("A " + documents.getFormat() + " file cannot be memory-mapped, it will be decompressed as a stream");
+                } else {
+                    try {
+                        final MappedTermEntryScanner scanner = new MappedTermEntryScanner(new File(file));
+                        inputs.add(scanner);
+                        //The header is read from the text before the first termEntry
+                        final TermEntryReader reader = new TermEntryReader(new StringReader(scanner.getPrologue()), "martifHeader", "termEntry");
+                        List<TermEntrySource> sources = scanner.split(options.ordered ? 1 : options.threads);
+                        if (resuming(checkpoint, true)) {
+                            sources = Collections.singletonList(scanner.from(checkpoint.inputOffset));
+                        }
+                        if (checkpoint == null || checkpoint.document == 0) {
+                            serializeDocument(reader, sources, out, mappings, namespace, options, checkpoint);
+                        }
+                        out.flush();
+                        return null;
+                    } catch (UnsupportedEncodingException e) {
+                        logger.warn(e.getMessage() + ", the file will be decoded as text");
+                    }
+                }
+            }
+            InputStream document;
+            for (int index = 0; (document = documents.next()) != null; index++) {
+                if (checkpoint != null && index < checkpoint.document) {
+                    //Already converted
+                    continue;
+                }
+                if (documents.getFormat() == InputDocuments.Format.ZIP) {
+                    System.err.println("Converting " + documents.getName());
+                }
+                //The document is read only once: the martifHeader comes first, then the termEntry elements
+                final TermEntryReader reader = new TermEntryReader(new InputStreamReader(document, "UTF-8"), "martifHeader", "termEntry");
+                if (resuming(checkpoint, false)) {
+                    reader.skipTo(checkpoint.inputOffset);
+                }
+                serializeDocument(reader, Collections.<TermEntrySource>singletonList(reader), out, mappings, namespace, options, checkpoint);
+            }
+            out.flush();
+        } finally {
+            for (Closeable input : inputs) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a TBX document read from a stream, such as an upload, writing the RDF of every termEntry
+     * as soon as it is converted. Only the entries in flight are kept in memory, whatever the size of the
+     * document. Unlike convertAndSerializeLargeFile, the errors of the input or the output are thrown, and the
+     * entries which cannot be converted are only counted.
+     *
+     * @param input The TBX document, in UTF-8. It is not closed.
+     * @param out The output. It is flushed but not closed.
+     * @param mappings Mappings
+     * @param namespace The namespace of the dataset
+     * @param options Number of threads, order and format of the output. The options of the input and the output files are ignored.
+     */
+    public void convertAndSerialize(InputStream input, OutputStream out, Mappings mappings, String namespace, ConversionOptions options) throws Exception {
+        convertAndSerialize(input, out, mappings, namespace, options, new ConversionProgress());
+    }
+
+    /**
+     * Converts a TBX document read from a stream, as convertAndSerialize(input, out, mappings, namespace, options),
+     * publishing its progress
+     * @param progress The progress of the conversion, which can be followed and cancelled from other threads
+     */
+    public void convertAndSerialize(InputStream input, OutputStream out, Mappings mappings, String namespace, ConversionOptions options, ConversionProgress progress) throws Exception {
+        agents = new AgentDictionary(options.agents);
+        setFormat(options.format);
+        final TermEntryReader reader = new TermEntryReader(new InputStreamReader(input, "UTF-8"), "martifHeader", "termEntry");
+        final Resource rdataset = serializeHeader(reader, out, mappings, namespace);
+        final TermEntryPipeline pipeline = new TermEntryPipeline(this, mappings, namespace, rdataset, options.threads, options.ordered);
+        pipeline.setProgress(progress);
+        pipeline.run(Collections.<TermEntrySource>singletonList(reader), out);
+        out.flush();
+        progress.errors += reader.getMalformed();
+        logger.info("Total: " + pipeline.getCount() + " Errors: " + (pipeline.getErrors() + reader.getMalformed()));
+    }
+
+    /**
+     * Tells whether a document is resumed from the middle
+     * @param checkpoint The checkpoint, or null
+     * @param memoryMapped Whether the input is memory-mapped now
+     */
+    private static boolean resuming(Checkpoint checkpoint, boolean memoryMapped) throws IOException {
+        if (checkpoint == null || checkpoint.atDocumentStart()) {
+            return false;
+        }
+        if (checkpoint.memoryMapped != memoryMapped) {
+            throw new IOException("The checkpoint was saved with memorymapped=" + checkpoint.memoryMapped + ", it cannot be resumed with memorymapped=" + memoryMapped);
+        }
+        return true;
+    }
+
+    /**
+     * Serializes the header of a TBX document and then its entries
+     * @param reader The reader of the martifHeader
+     * @param sources The sources of the termEntry elements
+     * @param checkpoint The state of the conversion to be saved in the checkpoints, or null. If it is in the
+     * middle of the document, the header is not written again.
+     */
+    private void serializeDocument(TermEntryReader reader, List<TermEntrySource> sources, OutputStream fos, Mappings mappings, String namespace, ConversionOptions options, Checkpoint checkpoint) throws Exception {
+        String resourceURI = new String(namespace);
+
+        final Resource rdataset;
+        if (checkpoint == null || checkpoint.atDocumentStart()) {
+            rdataset = serializeHeader(reader, fos, mappings, resourceURI);
+        } else {
+            rdataset = ResourceFactory.createResource(resourceURI);
         }
 
+        //The lexicons are declared as their languages are found
+        TermEntryPipeline pipeline = new TermEntryPipeline(this, mappings, namespace, rdataset, options.threads, options.ordered);
+        if (checkpoint != null) {
+            //Unless the input is memory-mapped, the entries are read by the reader of the header
+            checkpoint.memoryMapped = !sources.contains(reader);
+            pipeline.setCheckpoint(checkpoint, new File(options.checkpoint), options.checkpointInterval, (CountingOutputStream) fos);
+        }
+        pipeline.run(sources, fos);
+        long malformed = 0;
+        for (TermEntrySource source : sources) {
+            malformed += source.getMalformed();
+        }
+        System.err.println("Total: " + pipeline.getCount() + " Errors: " + (pipeline.getErrors() + malformed));
+        if (checkpoint != null) {
+            //The next document starts from its beginning
+            fos.flush();
+            checkpoint.document++;
+            checkpoint.entries = 0;
+            checkpoint.inputOffset = 0;
+            checkpoint.languages.clear();
+            checkpoint.outputOffset = ((CountingOutputStream) fos).getCount();
+            checkpoint.save(new File(options.checkpoint));
+        }
+    }
+
+    /**
+     * Serializes the description of the dataset, taken from the martifHeader
+     * @return The resource of the dataset
+     */
+    private Resource serializeHeader(TermEntryReader reader, OutputStream fos, Mappings mappings, String resourceURI) throws Exception {
         //WE PROCESS HERE THE MARTIF HEADER
-        MartifHeader martifheader = extractAndReadMartifHeader(file, mappings);
-        
+        MartifHeader martifheader = null;
+        String xml = reader.next();
+        if (xml != null && reader.getElement().equals("martifHeader")) {
+            Document doc = loadXMLFromString(xml);
+            if (doc != null) {
+                martifheader = processMartifHeader(doc.getDocumentElement(), mappings);
+            }
+        } else if (xml != null) {
+            reader.unread(xml);
+        }
+        if (martifheader == null) {
+            logger.warn("Could not parse well the general metadata (MartifHeader)");
+        }
 
-        if (martifheader==null)
-            return null;
-        
         //First we serialize the header
         Model mdataset = ModelFactory.createDefaultModel();
         //The whole dataset!
         final Resource rdataset = mdataset.createResource(resourceURI);
-        rdataset.addProperty(DCTerms.type, handler.getMartifType());
+        rdataset.addProperty(DCTerms.type, getMartifType(reader.getRootTag()));
         //This should be generalized
         rdataset.addProperty(RDF.type, mdataset.createResource("http://www.w3.org/ns/dcat#Dataset"));
         rdataset.addProperty(DC.rights, IATE.rights);
         rdataset.addProperty(DC.source, IATE.iate);
         rdataset.addProperty(DC.attribution, "Download IATE, European Union, 2014");
-        martifheader.toRDF(mdataset, rdataset);
-        RDFDataMgr.write(fos, mdataset, Lang.NTRIPLES);
+        if (martifheader != null) {
+            URIMinter.begin(mdataset, resourceURI);
+            try {
+                martifheader.toRDF(mdataset, rdataset);
+            } finally {
+                URIMinter.end();
+            }
+        }
+        final EntryEmitter emitter = emitters.get();
+        fos.write(emitter.prefixes(resourceURI));
+        write(fos, mdataset, resourceURI);
 
-        
         Model msubjectFields = SubjectFields.generateSubjectFields();
-        RDFDataMgr.write(fos, msubjectFields, Lang.NTRIPLES);
-        
-        
+        write(fos, msubjectFields, resourceURI);
+        return rdataset;
+    }
 
-        //We declare that every lexicon belongs to 
-        Iterator it = lexicons.entrySet().iterator();
-        Property prootresource=mdataset.createProperty("http://www.w3.org/TR/void/rootResource");
-        while (it.hasNext()) {
-            Map.Entry e = (Map.Entry) it.next();
-            Resource rlexicon = (Resource) e.getValue();
-            rlexicon.addProperty(prootresource, rdataset);
+    /**
+     * Converts a termEntry XML fragment into RDF, in the format of the output.
+     * The triples are serialized as they are produced, without building a Jena graph for the entry.
+     * The languages of the lexical entries are returned so that the lexicons can be declared by a single
+     * thread. This method can be invoked from several threads at the same time.
+     *
+     * @param xml The termEntry fragment
+     * @param mappings Mappings
+     * @param namespace The namespace of the dataset, where the entries and the lexicons are
+     * @return The converted entry
+     */
+    ConvertedEntry convertTermEntry(InputSource xml, Mappings mappings, String namespace) throws Exception {
+        //We do a partial parsing of this XML fragment
+        Document doc = loadXML(xml);
+        if (doc == null || doc.getDocumentElement() == null) {
+            return ConvertedEntry.error(-1);
         }
-        
-        
-        boolean dentro = false;
+        final AgentDictionary agents = this.agents;
+        final ConvertedEntry result = new ConvertedEntry();
+        //The agents are only remembered once the entry has been written
+        agents.begin();
         try {
-            inputStream = new FileInputStream(file);
-            sc = new Scanner(inputStream, "UTF-8");
-            String xml = "";
+            serializeTermEntry(doc.getDocumentElement(), mappings, namespace, result);
+        } finally {
+            result.agents = agents.end();
+        }
+        return result;
+    }
 
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                //We identify the terms by scanning the strings. Not a very nice practice, though.
-                int index = line.indexOf("<termEntry");
-                if (index != -1) {
-                    dentro = true;
-                    xml = line.substring(index) + "\n";
-                }
-                if (dentro == true && index == -1) {
-                    xml = xml + line + "\n";
-                }
-                index = line.indexOf("</termEntry>");
-                if (index != -1) {
-                    xml = xml + line.substring(0, index) + "\n";
-                    count++;
-                    //We do a partial parsing of this XML fragment
-                    Document doc = loadXMLFromString(xml);
-                    if (doc == null) {
-                        continue;
-                    }
-                    Element root = doc.getDocumentElement();
-                    if (root != null) {
-                        try {
-                            Term term = processTermEntry(root, mappings);
-                            Model model = ModelFactory.createDefaultModel();
-                            TBX.addPrefixesToModel(model);
-                            model.setNsPrefix("", Main.DATA_NAMESPACE);
-                            final Resource rterm = term.getRes(model);
-                            rterm.addProperty(RDF.type, ONTOLEX.Concept);
-                            term.toRDF(model, rterm);
-                            for (LexicalEntry le : term.Lex_entries) {
-                                final Resource lexicon = lexicons.get(le.lang);
-                                lexicon.addProperty(LIME.entry, le.getRes(model));
-                                le.toRDF(model, rterm);
-                            }
-                            RDFDataMgr.write(fos, model, Lang.NTRIPLES);
-                        } catch (Exception e) {
-                            errors++;
-                            System.err.println("Error " + e.getMessage());
-                        }
-                        if (count % 1000 == 0) {
-                            System.err.println("Total: " + count + " Errors: " + errors);
-                        }
-                    }
-                    xml = "";
-                }
-            } //end of while
+    private void serializeTermEntry(Element element, Mappings mappings, String namespace, ConvertedEntry result) {
+        Term term = processTermEntry(element, mappings);
+        final EntryEmitter emitter = emitters.get();
+        Model model = emitter.begin(namespace);
+        URIMinter.begin(model, term.key);
+        try {
+            final Resource rterm = term.getRes(model);
+            rterm.addProperty(RDF.type, ONTOLEX.Concept);
+            term.toRDF(model, rterm);
+            for (LexicalEntry le : term.Lex_entries) {
+                final Resource lexicon = model.createResource(namespace + le.lang);
+                lexicon.addProperty(LIME.entry, le.getRes(model));
+                le.toRDF(model, rterm);
+                result.languages.add(le.lang);
+            }
+        } finally {
+            URIMinter.end();
+        }
+        result.rdf = emitter.end();
+    }
 
-            //Now we serialize the lexicons
-            RDFDataMgr.write(fos, handler.getLexiconsModel(), Lang.NTRIPLES);
+    /**
+     * Remembers the agents of an entry which has been written, so that they are not described again
+     */
+    void rememberAgents(List<String> labels) {
+        agents.addAll(labels);
+    }
 
+    /**
+     * Serializes the description of the lexicon of a language
+     *
+     * @param out The output
+     * @param namespace The namespace of the dataset, the lexicon is namespace + language
+     * @param language The language
+     * @param dataset The resource of the whole dataset
+     */
+    void writeLexicon(OutputStream out, String namespace, String language, Resource dataset) throws IOException {
+        final Model model = ModelFactory.createDefaultModel();
+        final Resource lexicon = model.createResource(namespace + language);
+        Resource rlan = LexvoManager.mgr.getLexvoFromISO2(language);
+        lexicon.addProperty(DC.language, rlan);
+        lexicon.addProperty(LIME.language, language);
+        lexicon.addProperty(RDF.type, LIME.Lexicon);
+        lexicon.addProperty(model.createProperty("http://www.w3.org/TR/void/rootResource"), dataset);
+        write(out, model, namespace);
+    }
 
+    /**
+     * Writes a model in the format of the output of big files
+     */
+    private void write(OutputStream out, Model model, String namespace) throws IOException {
+        final EntryEmitter emitter = emitters.get();
+        emitter.begin(namespace).add(model);
+        out.write(emitter.end());
+    }
 
-            // note that Scanner suppresses exceptions
-            if (sc.ioException() != null) {
-                throw sc.ioException();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (sc != null) {
-                sc.close();
+    /**
+     * Sets the format of the output of big files
+     */
+    private void setFormat(OutputFormat format) {
+        if (format != this.format) {
+            this.format = format;
+            emitters = newEmitters(format);
+        }
+    }
+
+    private static ThreadLocal<EntryEmitter> newEmitters(final OutputFormat format) {
+        return new ThreadLocal<EntryEmitter>() {
+            @Override
+            protected EntryEmitter initialValue() {
+                return new EntryEmitter(format);
             }
+        };
+    }
+
+    /**
+     * Obtains the value of the type attribute of the martif element
+     * @param rootTag The start tag of the martif element
+     */
+    static String getMartifType(String rootTag) {
+        if (rootTag == null) {
+            return "";
         }
-        return null;
-    }        
+        final Matcher matcher = MARTIF_TYPE.matcher(rootTag);
+        return matcher.find() ? matcher.group(2) : "";
+    }
+
+    private static final Pattern MARTIF_TYPE = Pattern.compile("\\stype\\s*=\\s*([\"'])(.*?)\\1");
+
+    /**
+     * The result of converting a termEntry
+     */
+    static class ConvertedEntry {
+
+        ///Marks the end of a stream of entries
+        static final ConvertedEntry END = new ConvertedEntry();
+
+        ///Position of the entry in the input
+        long seq;
+        ///Offset of the input after the entry, as given by its source
+        long offset;
+        ///The serialization of the triples, or null if the entry could not be converted
+        byte[] rdf;
+        ///Language of every lexical entry
+        final List<String> languages = new ArrayList<String>();
+        ///Labels of the agents of the entry, remembered once it is written
+        List<String> agents = Collections.emptyList();
+
+        static ConvertedEntry error(long seq) {
+            final ConvertedEntry result = new ConvertedEntry();
+            result.seq = seq;
+            return result;
+        }
+    }
+
     /**
      * Gently loads a DOM XML document from a XML fragment.
      * If it fails, it returns null;
      */
     public static Document loadXMLFromString(String xml) throws Exception {
+        return loadXML(new InputSource(new StringReader(xml)));
+    }
+
+    /**
+     * Gently loads a DOM XML document from a XML fragment, given as characters or bytes.
+     * If it fails, it returns null;
+     */
+    static Document loadXML(InputSource is) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            builder.setEntityResolver(new EntityResolver() {
-                @Override
-                public InputSource resolveEntity(String publicId, String systemId)
-                        throws SAXException, IOException {
-                    if (systemId.endsWith(".dtd")) {
-                        return new InputSource(new StringReader(""));
-                    } else {
-                        return null;
-                    }
-                }
-            });
-            InputSource is = new InputSource(new StringReader(xml));
-            return builder.parse(is);
+            return XMLUtils.getDocumentBuilder().parse(is);
         } catch (Exception e) {
             return null;
         }
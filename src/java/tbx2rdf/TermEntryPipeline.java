@@ -0,0 +1,380 @@
+package tbx2rdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.log4j.Logger;
+import tbx2rdf.TBX2RDF_Converter.ConvertedEntry;
+import org.xml.sax.InputSource;
+import tbx2rdf.utils.CountingOutputStream;
+import tbx2rdf.utils.ShardedPrintStream;
+import tbx2rdf.utils.TermEntrySource;
+
+/**
+ * Parallel conversion of the termEntry elements of a big file.
+ *
+ * Reader threads cut the input into termEntry fragments and feed them through a bounded queue
+ * to a pool of workers, which parse and convert them. The calling thread is the single writer: it
+ * writes the converted entries to the output, preceded by the description of the lexicon of every
+ * language found for the first time.
+ *
+ * If the order is to be preserved, the writer keeps the entries that arrive early in a reorder
+ * buffer until all the previous ones have been written. The number of entries in flight (queued,
+ * being converted or waiting in the reorder buffer) is bounded, so memory does not grow with the input.
+ */
+public class TermEntryPipeline {
+
+    private final static Logger logger = Logger.getLogger(TermEntryPipeline.class);
+
+    private final TBX2RDF_Converter converter;
+    private final Mappings mappings;
+    private final String namespace;
+    private final Resource dataset;
+    ///Languages whose lexicon has already been written
+    private final Set<String> languages = new HashSet<String>();
+    private final int threads;
+    private final boolean ordered;
+
+    ///Conversion statistics
+    private int count = 0;
+    private int errors = 0;
+
+    ///Progress followed by other threads, or null
+    private ConversionProgress progress = null;
+
+    ///State saved in the checkpoints, null if there are no checkpoints
+    private Checkpoint checkpoint = null;
+    private File checkpointFile;
+    private int checkpointInterval;
+    private CountingOutputStream checkpointOutput;
+
+    /**
+     * @param converter The converter doing the work of each entry
+     * @param mappings Mappings
+     * @param namespace The namespace of the dataset, where the lexicons are
+     * @param dataset The resource of the whole dataset
+     * @param threads Number of worker threads. With one thread everything is done in the calling thread.
+     * @param ordered Whether the output has to follow the order of the input
+     */
+    public TermEntryPipeline(TBX2RDF_Converter converter, Mappings mappings, String namespace, Resource dataset, int threads, boolean ordered) {
+        this.converter = converter;
+        this.mappings = mappings;
+        this.namespace = namespace;
+        this.dataset = dataset;
+        this.threads = Math.max(1, threads);
+        this.ordered = ordered;
+    }
+
+    /**
+     * Saves a checkpoint every given number of entries, so that the conversion can be resumed after a crash.
+     * The output has to be ordered.
+     * @param checkpoint The state when the conversion starts, a new one or the one resumed
+     * @param file The checkpoint file
+     * @param interval Number of entries between checkpoints
+     * @param output The output given to run(), which tells the output offset
+     */
+    public void setCheckpoint(Checkpoint checkpoint, File file, int interval, CountingOutputStream output) {
+        if (!ordered) {
+            throw new IllegalStateException("Checkpoints need an ordered output");
+        }
+        this.checkpoint = checkpoint;
+        this.checkpointFile = file;
+        this.checkpointInterval = Math.max(1, interval);
+        this.checkpointOutput = output;
+        languages.addAll(checkpoint.languages);
+    }
+
+    /**
+     * Publishes the number of entries written and of errors as the conversion goes, and lets it be cancelled
+     * @param progress The progress, updated by the thread running the pipeline
+     */
+    public void setProgress(ConversionProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Converts every entry read and writes it to the output
+     * @param sources The sources of termEntry fragments, in the order of the input. If the output is
+     * not ordered, each of them is read by its own thread.
+     * @param out The output
+     */
+    public void run(final List<TermEntrySource> sources, OutputStream out) throws IOException, InterruptedException {
+        if (threads == 1) {
+            InputSource xml;
+            long seq = 0;
+            for (TermEntrySource source : sources) {
+                while ((xml = source.nextEntry()) != null) {
+                    write(convert(new Task(seq++, xml, source.getOffset())), out);
+                }
+            }
+            return;
+        }
+        final int window = threads * 64;
+        final BlockingQueue<Task> tasks = new ArrayBlockingQueue<Task>(window);
+        final BlockingQueue<ConvertedEntry> results = new ArrayBlockingQueue<ConvertedEntry>(window);
+        final Semaphore inFlight = new Semaphore(window);
+        final IOException[] readError = new IOException[1];
+        ///Unexpected failure of a reader or of a worker, which stops the conversion
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicLong seq = new AtomicLong();
+
+        //With an ordered output the sequence numbers must follow the input, so a single thread reads everything
+        final List<List<TermEntrySource>> shares = new ArrayList<List<TermEntrySource>>();
+        if (ordered) {
+            shares.add(sources);
+        } else {
+            for (TermEntrySource source : sources) {
+                shares.add(Collections.singletonList(source));
+            }
+        }
+        final AtomicInteger readersLeft = new AtomicInteger(shares.size());
+        final List<Thread> readerThreads = new ArrayList<Thread>();
+        for (final List<TermEntrySource> share : shares) {
+            final Thread readerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    boolean interrupted = false;
+                    try {
+                        for (TermEntrySource source : share) {
+                            InputSource xml;
+                            while ((xml = source.nextEntry()) != null) {
+                                inFlight.acquire();
+                                tasks.put(new Task(seq.getAndIncrement(), xml, source.getOffset()));
+                            }
+                        }
+                    } catch (IOException e) {
+                        readError[0] = e;
+                    } catch (RuntimeException e) {
+                        readError[0] = new IOException(e);
+                    } catch (InterruptedException e) {
+                        //The writer has given up
+                        interrupted = true;
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        if (readersLeft.decrementAndGet() == 0 && !interrupted) {
+                            try {
+                                for (int i = 0; i < threads; i++) {
+                                    tasks.put(Task.END);
+                                }
+                            } catch (InterruptedException e) {
+                                //The writer has given up
+                            }
+                        }
+                    }
+                }
+            }, "tbx2rdf-reader-" + (readerThreads.size() + 1));
+            readerThread.setDaemon(true);
+            readerThreads.add(readerThread);
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, "tbx2rdf-worker-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean interrupted = false;
+                    try {
+                        Task task;
+                        while ((task = tasks.take()) != Task.END) {
+                            results.put(convert(task));
+                        }
+                    } catch (InterruptedException e) {
+                        //The writer has given up
+                        interrupted = true;
+                    } catch (Throwable e) {
+                        //Typically a StackOverflowError or an OutOfMemoryError on a huge entry
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        if (!interrupted) {
+                            try {
+                                results.put(ConvertedEntry.END);
+                            } catch (InterruptedException e) {
+                                //The writer has given up
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread readerThread : readerThreads) {
+            readerThread.start();
+        }
+
+        //The writer
+        final Map<Long, ConvertedEntry> pending = new HashMap<Long, ConvertedEntry>();
+        long next = 0;
+        int finished = 0;
+        try {
+            while (finished < threads) {
+                final ConvertedEntry result = results.take();
+                if (result == ConvertedEntry.END) {
+                    if (failure.get() != null) {
+                        //An entry may have been lost, the others would wait for it
+                        break;
+                    }
+                    finished++;
+                    continue;
+                }
+                if (!ordered) {
+                    write(result, out);
+                    inFlight.release();
+                    continue;
+                }
+                pending.put(result.seq, result);
+                ConvertedEntry ready;
+                while ((ready = pending.remove(next)) != null) {
+                    write(ready, out);
+                    inFlight.release();
+                    next++;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            for (Thread readerThread : readerThreads) {
+                readerThread.interrupt();
+            }
+        }
+        if (failure.get() != null) {
+            rethrow(failure.get());
+        }
+        if (!pending.isEmpty()) {
+            logger.warn(pending.size() + " entries could not be written in order");
+        }
+        if (readError[0] != null) {
+            throw readError[0];
+        }
+    }
+
+    /**
+     * Number of entries processed
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Number of entries which could not be converted
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private ConvertedEntry convert(Task task) {
+        try {
+            final ConvertedEntry result = converter.convertTermEntry(task.xml, mappings, namespace);
+            result.seq = task.seq;
+            result.offset = task.offset;
+            return result;
+        } catch (Exception e) {
+            logger.warn("The entry " + task.seq + " could not be converted: " + e.getMessage(), e);
+            final ConvertedEntry result = ConvertedEntry.error(task.seq);
+            result.offset = task.offset;
+            return result;
+        }
+    }
+
+    private static void rethrow(Throwable t) throws IOException {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        throw new IOException(t);
+    }
+
+    private void write(ConvertedEntry result, OutputStream out) throws IOException {
+        if (progress != null && progress.isCancelled()) {
+            throw new InterruptedIOException("The conversion was cancelled");
+        }
+        count++;
+        if (result.rdf == null) {
+            errors++;
+        } else {
+            for (String language : result.languages) {
+                if (languages.add(language)) {
+                    converter.writeLexicon(out, namespace, language, dataset);
+                }
+            }
+            out.write(result.rdf);
+            converter.rememberAgents(result.agents);
+            if (out instanceof ShardedPrintStream) {
+                ((ShardedPrintStream) out).endOfEntry();
+            }
+        }
+        if (count % 1000 == 0) {
+            logger.info("Total: " + count + " Errors: " + errors);
+        }
+        if (progress != null) {
+            progress.entries = count;
+            progress.errors = errors;
+        }
+        if (checkpoint != null) {
+            checkpoint.entries++;
+            checkpoint.inputOffset = result.offset;
+            if (count % checkpointInterval == 0) {
+                saveCheckpoint();
+            }
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        checkpointOutput.flush();
+        checkpoint.outputOffset = checkpointOutput.getCount();
+        checkpoint.languages.clear();
+        checkpoint.languages.addAll(languages);
+        checkpoint.save(checkpointFile);
+    }
+
+    /**
+     * A termEntry fragment and its position in the input
+     */
+    private static class Task {
+
+        static final Task END = new Task(-1, null, -1);
+
+        final long seq;
+        final InputSource xml;
+        ///Offset of the input after the entry
+        final long offset;
+
+        Task(long seq, InputSource xml, long offset) {
+            this.seq = seq;
+            this.xml = xml;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package tbx2rdf;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+
+/**
+ * Converts the values of the elements with an exceptional mapping (EX) into RDF.
+ *
+ * The transformers are found with the ServiceLoader, listed in META-INF/services/tbx2rdf.ValueTransformer, and
+ * an exceptional mapping refers to one by its name. A mapping can also give the full name of a class with a
+ * public constructor without arguments. A transformer is created once, when the mappings are read, and is then
+ * called from every conversion thread, so it must be thread-safe.
+ */
+public interface ValueTransformer {
+
+    /**
+     * The name given in angular brackets in the exceptional mappings, for example "subjectField"
+     */
+    String getName();
+
+    /**
+     * Adds the triples of a value
+     * @param model The model to add the triples to
+     * @param parent The resource of the element which has the value
+     * @param value The value, serialized as XML
+     */
+    void toRDF(Model model, Resource parent, String value);
+}
@@ -0,0 +1,51 @@
+package tbx2rdf.datasets.iate;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDFS;
+import tbx2rdf.ValueTransformer;
+import tbx2rdf.vocab.TBX;
+
+/**
+ * Links the IATE subject fields, given by their code, to their resources, labelled with their topic.
+ * Unknown codes are linked to the resource "unknown".
+ * The resources and the labels are created once, from the bundled list of subject fields.
+ */
+public class SubjectFieldTransformer implements ValueTransformer {
+
+    private static final Resource UNKNOWN = ResourceFactory.createResource("unknown");
+
+    ///Resource of every subject field, by code
+    private final Map<String, Resource> resources = new HashMap<String, Resource>();
+    ///Topic of every subject field, by code
+    private final Map<String, Literal> labels = new HashMap<String, Literal>();
+
+    public SubjectFieldTransformer() {
+        for (SubjectField sf : new SubjectFields().readInternalFile()) {
+            final String uri = sf.getID();
+            final String code = uri.substring(uri.lastIndexOf('/') + 1);
+            resources.put(code, ResourceFactory.createResource(uri));
+            labels.put(code, ResourceFactory.createPlainLiteral(sf.getTopicString()));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "subjectField";
+    }
+
+    @Override
+    public void toRDF(Model model, Resource parent, String value) {
+        final Resource res = resources.get(value);
+        if (res == null) {
+            parent.addProperty(TBX.subjectField, UNKNOWN);
+        } else {
+            parent.addProperty(TBX.subjectField, res);
+            model.add(res, RDFS.label, labels.get(value));
+        }
+    }
+}
@@ -4,17 +4,20 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 //JENA
-import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 
 /**
  * This class provides with methods to obtain the Lexvo resource corresponding to a language iso code.
  * (Easily extendable to accept as input a language, as the language file is included)
+ * The resource of each language code is created once and cached, and can be obtained by several threads at once.
  * @author Victor Rodriguez Doncel
  */
 public class LexvoManager {
@@ -24,6 +27,9 @@ public class LexvoManager {
     public Map<String, String> mapa3n = new HashMap();
     public Map<String, String> mapa23 = new HashMap();
 
+    ///Lexvo resource by language code, as given
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<String, Resource>();
+
     /**
      * The constructor reads the name together with the iso2 and iso3 representation
      * This information is stored in a bundled text file
@@ -48,15 +54,22 @@ public class LexvoManager {
     
     /**
      * Obtains a LEXVO resource from a ISO2 language code ("es", "de", etc.)
+     * BCP 47 tags ("en-GB", "pt_BR", "EN") are reduced to their language subtag, which can also be a three-letter code ("spa").
      * @param iso2 Language code ("es", "de")
      * @return A Jena Resource with the LEXVO resource
      */
     public Resource getLexvoFromISO2(String iso2) {
-        Model model = ModelFactory.createDefaultModel();
-        String iso3 = fromISO2toISO3(iso2);
-        //String lexvo = "http://www.lexvo.org/page/iso639-3/" + iso3; // OLD
-        String lexvo = "http://www.lexvo.org/id/iso639-3/" + iso3;
-        Resource res = model.createProperty(lexvo);
+        Resource res = resources.get(iso2);
+        if (res == null) {
+            String iso3 = fromISO2toISO3(iso2);
+            //String lexvo = "http://www.lexvo.org/page/iso639-3/" + iso3; // OLD
+            String lexvo = "http://www.lexvo.org/id/iso639-3/" + iso3;
+            res = ResourceFactory.createResource(lexvo);
+            final Resource previous = resources.putIfAbsent(iso2, res);
+            if (previous != null) {
+                res = previous;
+            }
+        }
         return res;
     }    
     
@@ -73,8 +86,26 @@ public class LexvoManager {
 
     private String fromISO2toISO3(String iso2) {
         String iso3 = mapa23.get(iso2);
+        if (iso3 == null) {
+            iso3 = mapa23.get(normalize(iso2));
+        }
         return iso3 == null ? "unk" : iso3;
     }
 
+    /**
+     * The ISO 639-1 code of the language subtag of a BCP 47 tag, or the subtag if it has none
+     */
+    private String normalize(String tag) {
+        int end = 0;
+        while (end < tag.length() && tag.charAt(end) != '-' && tag.charAt(end) != '_') {
+            end++;
+        }
+        final String language = tag.substring(0, end).toLowerCase(Locale.ROOT);
+        if (language.length() == 3 && mapa32.containsKey(language)) {
+            return mapa32.get(language);
+        }
+        return language;
+    }
+
 
 }
@@ -11,6 +11,7 @@ import java.util.List;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import tbx2rdf.types.abs.impID;
+import tbx2rdf.utils.NodeSerializer;
 import tbx2rdf.vocab.TBX;
 
 /**
@@ -126,9 +127,8 @@ public class MartifHeader extends impID {
         
         //SOURCEDESC
         for(Element sourceDesc : fileDesc.sourceDesc) {
-            String test = nodeToString(sourceDesc);
             res.addProperty(TBX.sourceDesc, nodeToString(sourceDesc), XMLLiteral);
-            res.addProperty(DC_11.source, sourceDesc.getTextContent());
+            res.addProperty(DC_11.source, NodeSerializer.trimmedTextContent(sourceDesc));
            
         }
         if(encodingDesc != null) {
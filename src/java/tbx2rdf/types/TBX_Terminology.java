@@ -13,6 +13,7 @@ import java.util.Map;
 import java.util.Set;
 import tbx2rdf.Main;
 import tbx2rdf.datasets.lexvo.LexvoManager;
+import tbx2rdf.utils.URIMinter;
 import tbx2rdf.vocab.DC;
 import tbx2rdf.vocab.LIME;
 import tbx2rdf.vocab.ONTOLEX;
@@ -62,23 +63,28 @@ public class TBX_Terminology {
 
         final HashMap<String, Resource> lexicons = new HashMap<>();
         for (Term term : terms) {
-            final Resource concept = term.getRes(model);
-            //concept.addProperty(RDF.type, SKOS.Concept); // OLD
-            concept.addProperty(RDF.type, ONTOLEX.Concept);
-            term.toRDF(model, concept);
-            for (LexicalEntry le : term.Lex_entries) {
-                if (!lexicons.containsKey(le.lang)) {
-                    final Resource lexicon = model.createResource(resourceURI + le.lang);
-                    Resource rlan = LexvoManager.mgr.getLexvoFromISO2(le.lang);
-                    //lexicon.addProperty(ONTOLEX.language, rlan);// OLD  
-                    lexicon.addProperty(LIME.language, le.lang);   
-                    lexicon.addProperty(DC.language, rlan);    
-                    lexicon.addProperty(RDF.type, LIME.Lexicon);
-                    lexicons.put(le.lang, lexicon);
+            URIMinter.begin(model, term.key);
+            try {
+                final Resource concept = term.getRes(model);
+                //concept.addProperty(RDF.type, SKOS.Concept); // OLD
+                concept.addProperty(RDF.type, ONTOLEX.Concept);
+                term.toRDF(model, concept);
+                for (LexicalEntry le : term.Lex_entries) {
+                    if (!lexicons.containsKey(le.lang)) {
+                        final Resource lexicon = model.createResource(resourceURI + le.lang);
+                        Resource rlan = LexvoManager.mgr.getLexvoFromISO2(le.lang);
+                        //lexicon.addProperty(ONTOLEX.language, rlan);// OLD  
+                        lexicon.addProperty(LIME.language, le.lang);   
+                        lexicon.addProperty(DC.language, rlan);    
+                        lexicon.addProperty(RDF.type, LIME.Lexicon);
+                        lexicons.put(le.lang, lexicon);
+                    }
+                    final Resource lexicon = lexicons.get(le.lang);
+                    lexicon.addProperty(LIME.entry, le.getRes(model)); 
+                    le.toRDF(model, concept);
                 }
-                final Resource lexicon = lexicons.get(le.lang);
-                lexicon.addProperty(LIME.entry, le.getRes(model)); 
-                le.toRDF(model, concept);
+            } finally {
+                URIMinter.end();
             }
 
         }
@@ -87,7 +93,12 @@ public class TBX_Terminology {
         final Resource dataset = model.createResource(resourceURI);
         dataset.addProperty(DCTerms.type, this.type);
         dataset.addProperty(RDF.type, model.createResource("http://www.w3.org/ns/dcat#Dataset"));
-        header.toRDF(model, dataset);
+        URIMinter.begin(model, resourceURI);
+        try {
+            header.toRDF(model, dataset);
+        } finally {
+            URIMinter.end();
+        }
         return model;
     }
 }
@@ -8,7 +8,7 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.vocabulary.RDF;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import tbx2rdf.Mappings;
 
@@ -21,7 +21,11 @@ import tbx2rdf.Mappings;
  */
 public class Term extends Describable {
 
-    public final Set<LexicalEntry> Lex_entries = new HashSet<LexicalEntry>();
+    ///In document order, so that the identifiers minted for their elements do not change from run to run
+    public final Set<LexicalEntry> Lex_entries = new LinkedHashSet<LexicalEntry>();
+
+    ///Key of the scope where the identifiers of the elements of the entry are minted: its id or, if it has none, a hash of its XML
+    public String key = "";
 
     public Term()
     {
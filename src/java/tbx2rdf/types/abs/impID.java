@@ -5,18 +5,10 @@ import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDF;
-import java.io.StringWriter;
-import java.util.UUID;
-
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import tbx2rdf.utils.NodeSerializer;
+import tbx2rdf.utils.URIMinter;
 
 //W3C
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -40,7 +32,8 @@ public abstract class impID {
     }
 
     /**
-     * Get the ID, or a randomly generated identifier if this ID is not set
+     * Get the ID, or an identifier minted from the position of the element in its entry if this ID is
+     * not set
      *
      * @return A unique string ID
      */
@@ -48,7 +41,7 @@ public abstract class impID {
         if (id != null) {
             return id;
         } else {
-            return id = this.getClass().getSimpleName() + "-" + UUID.randomUUID().toString();
+            return id = URIMinter.mint(this.getClass().getSimpleName());
         }
     }
 
@@ -59,7 +52,7 @@ public abstract class impID {
      * @return A valid and unique RDF element
      */
     public Resource getRes(Model model) {
-        return model.createResource(model.expandPrefix(":" + getID()));
+        return model.createResource(URIMinter.expand(model, getID()));
     }
 
     /**
@@ -71,28 +64,12 @@ public abstract class impID {
      * @return
      */
     public Resource getSubRes(Model model, String name) {
-        return model.createResource(model.expandPrefix(":" + getID() + "#" + name));
+        return model.createResource(URIMinter.expand(model, getID() + "#" + name));
 
     }
 
     protected static final RDFDatatype XMLLiteral = NodeFactory.getType(RDF.getURI() + "#XMLLiteral");
 
-    private static void removeWhitespaceNode(Node node) {
-        if (node instanceof Element) {
-            final NodeList nl = node.getChildNodes();
-            for (int i = 0; i < nl.getLength(); i++) {
-                final Node n = nl.item(i);
-                if (n instanceof Element) {
-                    removeWhitespaceNode(n);
-                } else if (n.getTextContent().matches("\\s+")) {
-                    n.setTextContent("");
-                } else {
-                    n.setTextContent(n.getTextContent().trim());
-                }
-            }
-        }
-    }
-
     /**
      * Convert an XML Node to a string
      *
@@ -100,17 +77,7 @@ public abstract class impID {
      * @return The string serialization of the node
      */
     protected static String nodeToString(Node node) {
-        removeWhitespaceNode(node);
-        StringWriter sw = new StringWriter();
-        try {
-            Transformer t = TransformerFactory.newInstance().newTransformer();
-            t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            t.setOutputProperty(OutputKeys.INDENT, "no");
-            t.transform(new DOMSource(node), new StreamResult(sw));
-        } catch (TransformerException te) {
-            System.out.println("nodeToString Transformer Exception");
-        }
-        return sw.toString();
+        return NodeSerializer.toString(node);
     }
 
     /**
@@ -120,15 +87,7 @@ public abstract class impID {
      * @return The string serialization of the node
      */
     protected static String nodelistToString(NodeList node) {
-        StringWriter sw = new StringWriter();
-        for (int i = 0; i < node.getLength(); i++) {
-            final Node n = node.item(i);
-            removeWhitespaceNode(n);
-            if ((n instanceof Element) || !n.getTextContent().matches("\\s*")) {
-                sw.append(nodeToString(n));
-            }
-        }
-        return sw.toString();
+        return NodeSerializer.toString(node);
     }
 
     /**
@@ -11,8 +11,6 @@ import org.apache.jena.rdf.model.SimpleSelector;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
 import org.apache.jena.vocabulary.DCTerms;
-import org.apache.jena.vocabulary.RDFS;
-import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
 import org.apache.log4j.Logger;
@@ -25,9 +23,6 @@ import tbx2rdf.Mapping;
 import tbx2rdf.Mappings;
 import tbx2rdf.ObjectPropertyMapping;
 import tbx2rdf.TBXFormatException;
-import tbx2rdf.datasets.iate.SubjectField;
-import tbx2rdf.datasets.iate.SubjectFields;
-import tbx2rdf.vocab.TBX;
 
 /**
  * 
@@ -57,7 +52,7 @@ public abstract class impIDLangTypeTgtDtyp extends impIDLang {
 			if (target != null && !opm.hasRange()) {
 				try {
 					final URI uri = new URI(target);
-					parent.addProperty(model.createProperty(opm.getURL()), model.createResource(uri.toString()));
+					parent.addProperty(opm.getProperty(), model.createResource(uri.toString()));
 				} catch (URISyntaxException x) {
 					throw new TBXFormatException("Bad URL " + target);
 				}
@@ -66,8 +61,7 @@ public abstract class impIDLangTypeTgtDtyp extends impIDLang {
 				if (im == null) {
 					throw new TBXFormatException("Mapping not in declared property range or value URI not declared: " + valueString + " " + opm.getURL());
 				}
-                                    parent.addProperty(model.createProperty(opm.getURL()),
-                                    model.createResource(im.getURL()));
+                                    parent.addProperty(opm.getProperty(), im.getResource());
 			} else {
 				try {
 					final URI uri = new URI(valueString);
@@ -78,40 +72,16 @@ public abstract class impIDLangTypeTgtDtyp extends impIDLang {
 		} else if (type instanceof DatatypePropertyMapping) {
 			final DatatypePropertyMapping dpm = (DatatypePropertyMapping)type;
 			if (datatype != null) {
-				parent.addProperty(model.createProperty(type.getURL()), nodelistToString(value), NodeFactory.getType(datatype));
-			} else if(dpm.getDatatypeURL() != null) { 
-				parent.addProperty(model.createProperty(type.getURL()), nodelistToString(value), NodeFactory.getType(dpm.getDatatypeURL()));
+				parent.addProperty(dpm.getProperty(), nodelistToString(value), NodeFactory.getType(datatype));
+			} else if(dpm.getDatatype() != null) { 
+				parent.addProperty(dpm.getProperty(), nodelistToString(value), dpm.getDatatype());
 			} else if (value.getLength() <= 1) {
-				parent.addProperty(model.createProperty(type.getURL()), nodelistToString(value), lang);
+				parent.addProperty(dpm.getProperty(), nodelistToString(value), lang);
 			} else {
-				parent.addProperty(model.createProperty(type.getURL()), nodelistToString(value), XMLLiteral);
+				parent.addProperty(dpm.getProperty(), nodelistToString(value), XMLLiteral);
 			}
 		} else if (type instanceof ExceptionMapping){
-                    final ExceptionMapping em = (ExceptionMapping)type;
-                    try {
-                        Class<?> c = Class.forName("tbx2rdf.ExceptionMethods");
-                        Object o = c.newInstance();
-                        Class[] paramTypes = new Class[1];
-                        paramTypes[0]=String.class;
-                        Method m = c.getDeclaredMethod(em.getURL(), paramTypes);
-                        String res=(String) m.invoke(o, nodelistToString(value));
-                        Resource r=model.createResource(res);
-                        parent.addProperty(TBX.subjectField,r);
-                        
-                        //Special procedure for IATE subject fields. THIS SHOULD NOT BE HERE because it is breaking the converter neutrality
-                        if(r.toString().contains("http://tbx2rdf.lider-project.eu/data/iate/subjectField/"))
-                        {
-                            String urisf = r.getURI().toString();
-                            urisf = urisf.substring(urisf.lastIndexOf("/")+1, urisf.length());
-                            SubjectField sf = SubjectFields.mapauris.get(urisf);
-                            if (sf!=null)
-                                model.add(r,RDFS.label, sf.getTopicString());
-                        }
-                        //End of the special procedure for IATE subject fields
-                        
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
+                    ((ExceptionMapping) type).getTransformer().toRDF(model, parent, nodelistToString(value));
                 }
                 else {
                     logger.warn("Unexpected mapping type when processing " + parent.getURI()  );
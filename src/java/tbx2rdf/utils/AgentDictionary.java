@@ -0,0 +1,180 @@
+package tbx2rdf.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.jena.rdf.model.Model;
+
+/**
+ * The agents (prov:Agent) already written by a conversion, so that each one is only described once.
+ *
+ * The URI of an agent is derived from its label, so the dictionary only remembers the labels, up to a maximum
+ * number: the least recently used ones are forgotten, and an agent forgotten is described again, with the same
+ * URI, the next time it is found. The memory used is thus bounded whatever the size of the input, at the cost
+ * of some duplicated triples.
+ *
+ * The labels are spread over segments locked independently, so that the threads of a conversion seldom wait
+ * for each other.
+ *
+ * An entry converted in a scope opened with begin() only remembers its agents when they are given to addAll()
+ * after the entry has been written: an entry which fails does not leave agents remembered but never described.
+ */
+public class AgentDictionary {
+
+    public static final int DEFAULT_CAPACITY = 100000;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    ///Labels of the agents found in the entry converted by each thread, null outside of an entry
+    private final ThreadLocal<List<String>> entries = new ThreadLocal<List<String>>();
+
+    public AgentDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of labels remembered. 0 to describe the agents every time they are found.
+     */
+    public AgentDictionary(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity " + capacity);
+        }
+        //Small dictionaries are not segmented, so that they are exactly least recently used
+        final int n = capacity < SEGMENTS * 64 ? 1 : SEGMENTS;
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(capacity / n + (i < capacity % n ? 1 : 0));
+        }
+    }
+
+    /**
+     * The URI of an agent
+     * @param model The model where the agent is created
+     * @param label The label of the agent
+     */
+    public static String getURI(Model model, String label) {
+        return URIMinter.expand(model, URIMinter.mint("Agent", label));
+    }
+
+    /**
+     * Remembers an agent
+     * @param label The label of the agent
+     * @return true if the agent was not remembered, so it has to be described
+     */
+    public boolean add(String label) {
+        final Segment segment = segmentOf(label);
+        synchronized (segment) {
+            return segment.put(label, Boolean.TRUE) == null;
+        }
+    }
+
+    /**
+     * Remembers agents, typically those of an entry once it has been written
+     * @param labels The labels of the agents
+     */
+    public void addAll(Collection<String> labels) {
+        for (String label : labels) {
+            add(label);
+        }
+    }
+
+    /**
+     * Tells whether an agent found has to be described. Outside of an entry, the agent is remembered at once;
+     * in the scope of an entry it is only collected, and remembered by addAll() with the result of end().
+     * @param label The label of the agent
+     * @return true if the agent is not remembered, so it has to be described
+     */
+    public boolean describe(String label) {
+        final List<String> found = entries.get();
+        if (found == null) {
+            return add(label);
+        }
+        found.add(label);
+        return !contains(label);
+    }
+
+    /**
+     * Opens the scope of an entry on the current thread
+     */
+    public void begin() {
+        entries.set(new ArrayList<String>());
+    }
+
+    /**
+     * Closes the scope of the entry of the current thread
+     * @return The labels of the agents found in the entry, to be given to addAll() if the entry is written
+     */
+    public List<String> end() {
+        final List<String> found = entries.get();
+        entries.remove();
+        return found == null ? new ArrayList<String>() : found;
+    }
+
+    /**
+     * Whether an agent is remembered, without making it the most recently used
+     */
+    public boolean contains(String label) {
+        final Segment segment = segmentOf(label);
+        synchronized (segment) {
+            return segment.containsKey(label);
+        }
+    }
+
+    /**
+     * Number of agents remembered
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Forgets every agent
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private Segment segmentOf(String label) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        final int h = label.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Labels in access order, the eldest being removed beyond the capacity
+     */
+    private static class Segment extends LinkedHashMap<String, Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
+}
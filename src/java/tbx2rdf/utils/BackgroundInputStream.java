@@ -0,0 +1,155 @@
+package tbx2rdf.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a stream ahead on its own thread, so that the work done by the stream (typically decompression)
+ * overlaps with the work of whoever consumes it. The chunks read are handed over through a bounded queue.
+ */
+public class BackgroundInputStream extends InputStream {
+
+    ///Marks the end of the input
+    private static final byte[] EOF = new byte[0];
+
+    private final InputStream in;
+    private final BlockingQueue<byte[]> chunks;
+    private final Thread thread;
+    private volatile IOException error = null;
+
+    ///Chunk being consumed
+    private byte[] chunk = null;
+    private int pos = 0;
+
+    /**
+     * Starts reading the stream
+     * @param in The stream to be read ahead. It is closed with this one.
+     * @param name Name of the reading thread
+     */
+    public BackgroundInputStream(InputStream in, String name) {
+        this(in, 1 << 16, 16, name);
+    }
+
+    /**
+     * Starts reading the stream
+     * @param in The stream to be read ahead. It is closed with this one.
+     * @param chunkSize Size of the chunks read
+     * @param capacity Maximum number of chunks read ahead
+     * @param name Name of the reading thread
+     */
+    public BackgroundInputStream(final InputStream in, final int chunkSize, int capacity, String name) {
+        this.in = in;
+        this.chunks = new ArrayBlockingQueue<byte[]>(capacity);
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean interrupted = false;
+                try {
+                    while (true) {
+                        final byte[] b = new byte[chunkSize];
+                        final int n = fill(b);
+                        if (n == 0) {
+                            break;
+                        }
+                        chunks.put(n == b.length ? b : Arrays.copyOf(b, n));
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } catch (InterruptedException e) {
+                    //The stream has been closed
+                    interrupted = true;
+                } catch (Throwable e) {
+                    error = new IOException(e);
+                } finally {
+                    if (!interrupted) {
+                        try {
+                            chunks.put(EOF);
+                        } catch (InterruptedException e) {
+                            //The stream has been closed
+                        }
+                    }
+                }
+            }
+
+            private int fill(byte[] b) throws IOException {
+                int n = 0;
+                int r;
+                while (n < b.length && (r = in.read(b, n, b.length - n)) != -1) {
+                    n += r;
+                }
+                return n;
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return chunk[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+        len = Math.min(len, chunk.length - pos);
+        System.arraycopy(chunk, pos, b, off, len);
+        pos += len;
+        return len;
+    }
+
+    @Override
+    public int available() {
+        return chunk == null ? 0 : chunk.length - pos;
+    }
+
+    /**
+     * Stops the reading thread and closes the underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        in.close();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    /**
+     * Makes sure there are bytes in the current chunk
+     * @return false at the end of the input
+     */
+    private boolean ensureChunk() throws IOException {
+        while (chunk == null || (pos == chunk.length && chunk != EOF)) {
+            try {
+                chunk = chunks.take();
+                pos = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the input", e);
+            }
+        }
+        if (chunk == EOF) {
+            if (error != null) {
+                throw error;
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+package tbx2rdf.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written through it
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    public CountingOutputStream(OutputStream out) {
+        this(out, 0);
+    }
+
+    /**
+     * @param out The output
+     * @param start The number of bytes already in the output
+     */
+    public CountingOutputStream(OutputStream out, long start) {
+        super(out);
+        this.count = start;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    /**
+     * Number of bytes written, plus the number of bytes that were already in the output
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,147 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.jena.atlas.io.AWriter;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.thrift.StreamRDF2Thrift;
+import org.apache.jena.riot.writer.WriterStreamRDFFlat;
+import org.apache.jena.riot.writer.WriterStreamRDFPlain;
+import tbx2rdf.OutputFormat;
+import tbx2rdf.vocab.TBX;
+
+/**
+ * Serializes the triples of one entry at a time, in a streaming format.
+ *
+ * The model returned by begin() is backed by a StreamRDFGraph, so the triples are formatted into a
+ * reusable byte buffer as they are added. The model, the writer and the buffer are created once and
+ * reused for every entry. An emitter must not be shared between threads.
+ *
+ * N-Triples and N-Quads are written a triple per line. Turtle is also written a triple per line, abbreviated
+ * with the prefixes of the TBX vocabularies and of the data, which are declared once at the beginning of
+ * the output with prefixes(). RDF Thrift is written as a row per triple, after a row per prefix: the
+ * prefixes are the table of the namespaces of the terms, so that the rows of the triples only carry the
+ * local names of most IRIs. The rows of the entries can be concatenated, like the lines of N-Triples.
+ */
+public class EntryEmitter {
+
+    ///Namespaces found in most entries besides the TBX vocabularies, for the formats with prefixes
+    private static final String[][] NAMESPACES = {
+        {"lime", "http://www.w3.org/ns/lemon/lime#"},
+        {"xsd", "http://www.w3.org/2001/XMLSchema#"},
+        {"lexinfo", "http://www.lexinfo.net/ontology/2.0/lexinfo#"},
+        {"lexvo", "http://www.lexvo.org/id/iso639-3/"},
+        {"subjectField", "http://tbx2rdf.lider-project.eu/data/iate/subjectField/"}
+    };
+
+    private final OutputFormat format;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16384);
+    ///Namespace of the data, for which the writer has been created
+    private String namespace = null;
+    ///Writer of the text formats, null for RDF Thrift
+    private AWriter writer;
+    private StreamRDF stream;
+    private StreamRDFGraph graph;
+    private Model model;
+    private byte[] declarations;
+
+    /**
+     * @param format The format of the output
+     * @throws IllegalArgumentException If the format cannot be written entry by entry
+     */
+    public EntryEmitter(OutputFormat format) {
+        if (!supports(format)) {
+            throw new IllegalArgumentException("The format " + format.getName() + " cannot be written entry by entry");
+        }
+        this.format = format;
+    }
+
+    /**
+     * Whether the entries can be written in a format one at a time
+     */
+    public static boolean supports(OutputFormat format) {
+        return format.isStreaming();
+    }
+
+    /**
+     * The declarations of the prefixes, to be written before the first entry
+     * @param namespace The namespace of the data, used for the empty prefix
+     */
+    public byte[] prefixes(String namespace) {
+        open(namespace);
+        return declarations;
+    }
+
+    /**
+     * Starts a new entry
+     * @param namespace The namespace of the data, used for the empty prefix
+     * @return The model where the triples of the entry are to be added
+     */
+    public Model begin(String namespace) {
+        open(namespace);
+        bytes.reset();
+        graph.reset();
+        return model;
+    }
+
+    /**
+     * Finishes the current entry
+     * @return The serialization of the triples added since begin()
+     */
+    public byte[] end() {
+        flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates the writer of a namespace, unless it is the one of the previous entry
+     */
+    private void open(String namespace) {
+        if (namespace.equals(this.namespace)) {
+            return;
+        }
+        if (format == OutputFormat.THRIFT) {
+            writer = null;
+            stream = new StreamRDF2Thrift(bytes, false);
+        } else if (format == OutputFormat.TURTLE) {
+            final IndentedWriter indented = new IndentedWriter(bytes);
+            stream = new WriterStreamRDFFlat(indented);
+            writer = indented;
+        } else {
+            writer = IO.wrapUTF8(bytes);
+            stream = new WriterStreamRDFPlain(writer);
+        }
+        graph = new StreamRDFGraph(stream);
+        model = ModelFactory.createModelForGraph(graph);
+        TBX.addPrefixesToModel(model);
+        model.setNsPrefix("", namespace);
+        //The writer abbreviates with the prefixes it has declared. The extra ones are not set in the model,
+        //which expands the identifiers of the elements with its prefixes.
+        final Map<String, String> prefixes = new TreeMap<String, String>(model.getNsPrefixMap());
+        for (String[] prefix : NAMESPACES) {
+            prefixes.put(prefix[0], prefix[1]);
+        }
+        bytes.reset();
+        stream.start();
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            stream.prefix(prefix.getKey(), prefix.getValue());
+        }
+        flush();
+        declarations = bytes.toByteArray();
+        this.namespace = namespace;
+    }
+
+    private void flush() {
+        if (writer != null) {
+            writer.flush();
+        } else {
+            //Only flushes the buffer of the Thrift protocol
+            stream.finish();
+        }
+    }
+}
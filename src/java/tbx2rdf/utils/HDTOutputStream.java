@@ -0,0 +1,145 @@
+package tbx2rdf.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import org.apache.log4j.Logger;
+import org.rdfhdt.hdt.enums.RDFNotation;
+import org.rdfhdt.hdt.exceptions.ParserException;
+import org.rdfhdt.hdt.hdt.HDT;
+import org.rdfhdt.hdt.hdt.HDTManager;
+import org.rdfhdt.hdt.listener.ProgressListener;
+import org.rdfhdt.hdt.options.HDTOptionsKeys;
+import org.rdfhdt.hdt.options.HDTSpecification;
+
+/**
+ * An output which writes the N-Triples written to it as an HDT file (Header, Dictionary, Triples), a compressed
+ * and indexed form of RDF which can be memory-mapped and queried without being loaded into a store.
+ *
+ * The N-Triples are spooled to a work directory as the conversion goes. When the output is closed, the HDT is
+ * generated from them with the disk-based generation of hdt-java: the terms of the dictionary and the triples are
+ * sorted in chunks written to the work directory and merged, so the memory used does not grow with the number of
+ * triples. The duplicated triples of the conversion are only kept once. If the conversion fails, abort() deletes
+ * the work directory without writing the HDT.
+ */
+public class HDTOutputStream extends OutputStream {
+
+    private static final Logger logger = Logger.getLogger(HDTOutputStream.class);
+
+    private final File file;
+    private final String baseURI;
+    private final File work;
+    private final File triples;
+    private final OutputStream out;
+    private boolean closed = false;
+
+    /**
+     * Creates the work directory and starts spooling
+     * @param file The HDT file written when the output is closed
+     * @param baseURI The base URI of the dataset, written in the header of the HDT
+     * @param workDirectory Directory where the work directory is created, null for the directory of the HDT file.
+     * It needs room for about three times the N-Triples.
+     */
+    public HDTOutputStream(String file, String baseURI, String workDirectory) throws IOException {
+        this.file = new File(file).getAbsoluteFile();
+        this.baseURI = baseURI;
+        final File parent = workDirectory == null ? this.file.getParentFile() : new File(workDirectory);
+        this.work = Files.createTempDirectory(parent.toPath(), "tbx2rdf-hdt").toFile();
+        this.triples = new File(work, "triples.nt");
+        this.out = new BufferedOutputStream(new FileOutputStream(triples), 1 << 16);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Generates the HDT file from the triples written and deletes the work directory
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+            generate();
+        } finally {
+            delete(work);
+        }
+    }
+
+    /**
+     * Gives up the output when the conversion has not finished: the work directory is deleted and no HDT is written
+     */
+    public void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            delete(work);
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private void generate() throws IOException {
+        final HDTSpecification spec = new HDTSpecification();
+        spec.set(HDTOptionsKeys.LOADER_DISK_LOCATION_KEY, new File(work, "generation").getPath());
+        //The generated HDT is mapped from the work directory rather than held in memory until it is saved
+        spec.set(HDTOptionsKeys.LOADER_DISK_FUTURE_HDT_LOCATION_KEY, new File(work, "generated.hdt").getPath());
+        spec.set(HDTOptionsKeys.LOADER_DISK_COMPRESSION_WORKER_KEY, String.valueOf(Runtime.getRuntime().availableProcessors()));
+        final ProgressListener listener = new ProgressListener() {
+            private int logged = -1;
+
+            @Override
+            public void notifyProgress(float level, String message) {
+                if ((int) level / 10 != logged) {
+                    logged = (int) level / 10;
+                    logger.info("HDT " + (int) level + "%: " + message);
+                }
+            }
+        };
+        logger.info("Generating the HDT file " + file);
+        try {
+            final HDT hdt = HDTManager.generateHDTDisk(triples.getPath(), baseURI, RDFNotation.NTRIPLES, spec, listener);
+            try {
+                hdt.saveToHDT(file.getPath(), listener);
+                logger.info("Written " + hdt.getTriples().getNumberOfElements() + " triples to " + file);
+            } finally {
+                hdt.close();
+            }
+        } catch (ParserException x) {
+            throw new IOException("The triples could not be read: " + x.getMessage(), x);
+        }
+    }
+
+    ///Deletes a file or a directory with its content
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,155 @@
+package tbx2rdf.utils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.log4j.Logger;
+
+/**
+ * The TBX documents of an input file, which may be plain XML, gzip or bzip2 compressed, or a zip archive
+ * holding several documents. The format is detected from the first bytes of the file, not from its name.
+ *
+ * Compressed documents are decompressed on a background thread, so nothing is unpacked to disk.
+ */
+public class InputDocuments implements Closeable {
+
+    private final static Logger logger = Logger.getLogger(InputDocuments.class);
+
+    public enum Format {
+        PLAIN, GZIP, BZIP2, ZIP
+    }
+
+    private final File file;
+    private final Format format;
+    private ZipArchiveInputStream zip = null;
+    ///The document being read
+    private InputStream current = null;
+    private String name = null;
+    private boolean done = false;
+
+    /**
+     * Opens a file
+     * @param file The input file
+     */
+    public InputDocuments(File file) throws IOException {
+        this.file = file;
+        this.format = detect(file);
+    }
+
+    /**
+     * Detects the format of a file from its magic number
+     */
+    public static Format detect(File file) throws IOException {
+        final byte[] magic = new byte[4];
+        final InputStream in = new FileInputStream(file);
+        int n = 0;
+        try {
+            int r;
+            while (n < magic.length && (r = in.read(magic, n, magic.length - n)) != -1) {
+                n += r;
+            }
+        } finally {
+            in.close();
+        }
+        if (n >= 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b) {
+            return Format.GZIP;
+        }
+        if (n >= 3 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h') {
+            return Format.BZIP2;
+        }
+        if (n >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return Format.ZIP;
+        }
+        return Format.PLAIN;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Opens the next document, closing the previous one
+     * @return The bytes of the document, or null if there are no more documents
+     */
+    public InputStream next() throws IOException {
+        closeCurrent();
+        if (done) {
+            return null;
+        }
+        if (format == Format.ZIP) {
+            return nextZipEntry();
+        }
+        final InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        done = true;
+        name = file.getName();
+        if (format == Format.GZIP) {
+            current = new BackgroundInputStream(new GzipCompressorInputStream(in, true), "tbx2rdf-gunzip");
+        } else if (format == Format.BZIP2) {
+            current = new BackgroundInputStream(new BZip2CompressorInputStream(in, true), "tbx2rdf-bunzip2");
+        } else {
+            current = in;
+        }
+        return current;
+    }
+
+    /**
+     * Name of the current document: the name of the file, or of the entry of the zip archive
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+        done = true;
+        if (zip != null) {
+            zip.close();
+            zip = null;
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private InputStream nextZipEntry() throws IOException {
+        if (zip == null) {
+            zip = new ZipArchiveInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        }
+        ZipArchiveEntry entry;
+        while ((entry = zip.getNextZipEntry()) != null) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            final String entryName = entry.getName().toLowerCase();
+            if (!entryName.endsWith(".tbx") && !entryName.endsWith(".xml")) {
+                logger.warn("Skipping " + entry.getName() + " from " + file.getName() + ", it is not a TBX file");
+                continue;
+            }
+            name = entry.getName();
+            //Closing the document must not close the archive
+            current = new BackgroundInputStream(new FilterInputStream(zip) {
+                @Override
+                public void close() {
+                }
+            }, "tbx2rdf-unzip");
+            return current;
+        }
+        done = true;
+        return null;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
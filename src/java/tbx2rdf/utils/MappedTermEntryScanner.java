@@ -0,0 +1,467 @@
+package tbx2rdf.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.log4j.Logger;
+import org.xml.sax.InputSource;
+
+/**
+ * Finds the termEntry elements of a TBX file by scanning its raw bytes through a memory mapping.
+ *
+ * Nothing is decoded: every entry is handed to the parser as a slice of the mapped file. Only
+ * encodings where the markup characters are single bytes (UTF-8, ASCII, ISO-8859-x) are supported.
+ *
+ * The file can be split into byte ranges to be scanned by several threads. The split points are
+ * found by a sequential scan of the tags, which only looks for the '&lt;' of the termEntry tags and
+ * skips comments, CDATA sections and processing instructions: each range starts at the start tag of an
+ * entry, never inside a comment or a CDATA section, and owns every entry starting before its end.
+ *
+ * An entry too long to be mapped is skipped as malformed.
+ */
+public class MappedTermEntryScanner implements Closeable {
+
+    private final static Logger logger = Logger.getLogger(MappedTermEntryScanner.class);
+
+    ///Maximum size of a mapped region, and thus of a termEntry
+    private static final int WINDOW = 1 << 28;
+
+    private static final byte[] NAME = ascii("termEntry");
+    private static final byte[] COMMENT = ascii("<!--");
+    private static final byte[] COMMENT_END = ascii("-->");
+    private static final byte[] CDATA = ascii("<![CDATA[");
+    private static final byte[] CDATA_END = ascii("]]>");
+    private static final byte[] PI_END = ascii("?>");
+
+    private static final Pattern ENCODING = Pattern.compile("^<\\?xml[^>]*encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+    ///Size of the mapped regions
+    private final int window;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final String encoding;
+    ///Offset of the first termEntry
+    private final long first;
+
+    /**
+     * Maps the file and finds its first entry
+     * @param f The TBX file
+     * @throws UnsupportedEncodingException If the file is not in a byte-compatible encoding
+     */
+    public MappedTermEntryScanner(File f) throws IOException {
+        this(f, WINDOW);
+    }
+
+    /**
+     * @param window Maximum size of a mapped region, and thus of a termEntry
+     */
+    MappedTermEntryScanner(File f, int window) throws IOException {
+        this.window = window;
+        file = new RandomAccessFile(f, "r");
+        try {
+            channel = file.getChannel();
+            size = channel.size();
+            encoding = detectEncoding();
+            first = new Range(0, size).firstStart();
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the beginning of the file, up to the first termEntry. It contains the martif start tag and the martifHeader.
+     */
+    public String getPrologue() throws IOException {
+        final long end = first < 0 ? size : first;
+        if (end > window) {
+            throw new IOException("The header of the file is too long");
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        return Charset.forName(encoding).decode(buffer).toString();
+    }
+
+    /**
+     * Splits the entries of the file into ranges of similar size. The file is scanned once to find the split points.
+     * @param parts The number of ranges
+     * @return The ranges, each of them to be read by a single thread, in the order of the file
+     */
+    public List<TermEntrySource> split(int parts) throws IOException {
+        final List<TermEntrySource> ranges = new ArrayList<TermEntrySource>();
+        if (first < 0) {
+            return ranges;
+        }
+        parts = Math.max(1, parts);
+        final long length = size - first;
+        //Each range starts at the first entry start tag after its share of the file
+        final Range scan = new Range(first, size);
+        long start = first;
+        long p = first;
+        for (int i = 1; i < parts && p >= 0; i++) {
+            final long target = first + length * i / parts;
+            if (target <= start) {
+                continue;
+            }
+            p = scan.startAfter(Math.max(p, start + 1), target);
+            if (p >= 0) {
+                ranges.add(new Range(start, p));
+                start = p;
+            }
+        }
+        ranges.add(new Range(start, size));
+        return ranges;
+    }
+
+    /**
+     * Scans the entries from a position, to resume a conversion
+     * @param offset A position outside of any entry, as given by the getOffset() of a range
+     * @return A single range up to the end of the file
+     */
+    public TermEntrySource from(long offset) {
+        return new Range(Math.max(offset, Math.max(first, 0)), size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private String detectEncoding() throws IOException {
+        final byte[] head = new byte[(int) Math.min(size, 256)];
+        file.seek(0);
+        file.readFully(head);
+        if (head.length >= 2 && ((head[0] == (byte) 0xFE && head[1] == (byte) 0xFF) || (head[0] == (byte) 0xFF && head[1] == (byte) 0xFE))) {
+            throw new UnsupportedEncodingException("UTF-16 files cannot be scanned as bytes");
+        }
+        int offset = 0;
+        if (head.length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) {
+            offset = 3;
+        }
+        final Matcher matcher = ENCODING.matcher(new String(head, offset, head.length - offset, "ISO-8859-1"));
+        if (!matcher.find()) {
+            return "UTF-8";
+        }
+        final String declared = matcher.group(1);
+        if (declared.toUpperCase().startsWith("UTF-16") || declared.toUpperCase().startsWith("UTF-32")) {
+            throw new UnsupportedEncodingException(declared + " files cannot be scanned as bytes");
+        }
+        boolean supported;
+        try {
+            supported = Charset.isSupported(declared);
+        } catch (IllegalCharsetNameException e) {
+            supported = false;
+        }
+        if (!supported) {
+            throw new UnsupportedEncodingException("The encoding " + declared + " is not supported");
+        }
+        return declared;
+    }
+
+    private static byte[] ascii(String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final int START = 1;
+    private static final int END = 2;
+
+    /**
+     * A range of the file, scanned by a single thread
+     */
+    private class Range implements TermEntrySource {
+
+        private final long start;
+        private final long end;
+        private long pos;
+        private long malformed = 0;
+
+        ///Currently mapped region
+        private MappedByteBuffer buffer = null;
+        private long windowStart = 0;
+        private long windowEnd = 0;
+        ///Start of the entry being scanned, which must stay mapped, or -1
+        private long entryStart = -1;
+        ///Kind of the last tag found
+        private int kind;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.pos = start;
+        }
+
+        @Override
+        public InputSource nextEntry() throws IOException {
+            long p = pos;
+            while (true) {
+                entryStart = -1;
+                final long s = nextTag(p);
+                if (s < 0 || s >= end) {
+                    pos = size;
+                    return null;
+                }
+                if (kind == END) {
+                    //The end of an entry owned by the previous range
+                    p = s + 2;
+                    continue;
+                }
+                entryStart = s;
+                try {
+                    final long afterStart = endOfTag(s);
+                    if (afterStart < 0) {
+                        return unclosed();
+                    }
+                    if (byteAt(afterStart - 2) == '/') {
+                        pos = afterStart;
+                        return slice(s, afterStart);
+                    }
+                    final long t = nextTag(afterStart);
+                    if (t < 0) {
+                        return unclosed();
+                    }
+                    if (kind == START) {
+                        malformed++;
+                        logger.warn("Unclosed termEntry at byte " + s + ", skipping it");
+                        p = t;
+                        continue;
+                    }
+                    final long e = endOfTag(t);
+                    if (e < 0) {
+                        return unclosed();
+                    }
+                    pos = e;
+                    return slice(s, e);
+                } catch (EntryTooLongException x) {
+                    malformed++;
+                    logger.warn("termEntry at byte " + s + " is longer than " + window + " bytes, skipping it");
+                    entryStart = -1;
+                    p = skipEntry(s);
+                    if (p < 0) {
+                        pos = size;
+                        return null;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public long getOffset() {
+            return pos;
+        }
+
+        @Override
+        public long getMalformed() {
+            return malformed;
+        }
+
+        /**
+         * Offset of the first termEntry start tag, or -1
+         */
+        long firstStart() throws IOException {
+            long p = start;
+            long s;
+            while ((s = nextTag(p)) >= 0 && kind != START) {
+                p = s + 2;
+            }
+            return s;
+        }
+
+        /**
+         * Finds the first termEntry start tag at or after a target, scanning from a position outside of any entry,
+         * comment or CDATA section
+         * @return Its offset, or -1 if there is none
+         */
+        long startAfter(long p, long target) throws IOException {
+            long s;
+            while ((s = nextTag(p)) >= 0 && (kind != START || s < target)) {
+                p = s + 2;
+            }
+            return s;
+        }
+
+        /**
+         * Skips an entry without mapping it whole
+         * @return The offset after its end tag, or of the next entry if it is not closed, or -1 at the end of the file
+         */
+        private long skipEntry(long s) throws IOException {
+            final long t = nextTag(s + 1);
+            if (t < 0 || kind == START) {
+                return t;
+            }
+            return endOfTag(t);
+        }
+
+        private InputSource unclosed() {
+            malformed++;
+            logger.warn("Unclosed termEntry at the end of the input");
+            pos = size;
+            return null;
+        }
+
+        private InputSource slice(long from, long to) {
+            final ByteBuffer slice = buffer.duplicate();
+            slice.limit((int) (to - windowStart));
+            slice.position((int) (from - windowStart));
+            final InputSource source = new InputSource(new ByteBufferInputStream(slice.slice()));
+            source.setEncoding(encoding);
+            return source;
+        }
+
+        private int byteAt(long p) throws IOException {
+            if (p < windowStart || p >= windowEnd) {
+                if (p >= size) {
+                    return -1;
+                }
+                final long base = entryStart >= 0 ? entryStart : p;
+                windowStart = base;
+                windowEnd = Math.min(size, base + window);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+                if (p >= windowEnd) {
+                    throw new EntryTooLongException();
+                }
+            }
+            return buffer.get((int) (p - windowStart));
+        }
+
+        /**
+         * Finds the next start or end tag of a termEntry, skipping comments, CDATA sections and processing instructions
+         * @return The offset of its '&lt;', or -1 at the end of the file
+         */
+        private long nextTag(long p) throws IOException {
+            int b;
+            while ((b = byteAt(p)) != -1) {
+                if (b != '<') {
+                    p++;
+                    continue;
+                }
+                final int c = byteAt(p + 1);
+                if (c == '!') {
+                    if (matches(p, COMMENT)) {
+                        p = skipPast(p + COMMENT.length, COMMENT_END);
+                    } else if (matches(p, CDATA)) {
+                        p = skipPast(p + CDATA.length, CDATA_END);
+                    } else {
+                        p += 2;
+                    }
+                } else if (c == '?') {
+                    p = skipPast(p + 2, PI_END);
+                } else if (c == '/' && matchesName(p + 2)) {
+                    kind = END;
+                    return p;
+                } else if (matchesName(p + 1)) {
+                    kind = START;
+                    return p;
+                } else {
+                    p++;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Finds the end of the tag starting at p, ignoring any '&gt;' inside quoted attribute values
+         * @return The offset after the '&gt;', or -1 at the end of the file
+         */
+        private long endOfTag(long p) throws IOException {
+            int quote = 0;
+            int b;
+            while ((b = byteAt(p++)) != -1) {
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '>') {
+                    return p;
+                }
+            }
+            return -1;
+        }
+
+        private long skipPast(long p, byte[] terminator) throws IOException {
+            while (byteAt(p) != -1) {
+                if (matches(p, terminator)) {
+                    return p + terminator.length;
+                }
+                p++;
+            }
+            return size;
+        }
+
+        private boolean matches(long p, byte[] bytes) throws IOException {
+            for (int i = 0; i < bytes.length; i++) {
+                if (byteAt(p + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesName(long p) throws IOException {
+            if (!matches(p, NAME)) {
+                return false;
+            }
+            final int next = byteAt(p + NAME.length);
+            return next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\n' || next == '\r';
+        }
+    }
+
+    /**
+     * Thrown when the entry being scanned does not fit in a mapped region
+     */
+    private static class EntryTooLongException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Reads a byte buffer without copying it
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package tbx2rdf.utils;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Serializes DOM nodes to strings, for the values of the TBX elements.
+ *
+ * It writes exactly what the JAXP identity transformer wrote (without XML declaration nor indentation)
+ * after the text of every descendant of an element had been trimmed, but it neither creates a transformer
+ * per node nor modifies the DOM. A value made of a single text node, the most common case, is escaped
+ * without any further work.
+ */
+public class NodeSerializer {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+    /**
+     * Serializes a node. The text inside an element is trimmed.
+     * @param node The node
+     * @return The XML of the node
+     */
+    public static String toString(Node node) {
+        if (node.getNodeType() == Node.TEXT_NODE) {
+            return escapeText(node.getNodeValue(), false);
+        }
+        final StringBuilder sb = new StringBuilder(64);
+        write(node, false, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Serializes a list of nodes, usually the content of an element. The nodes which are not elements and
+     * only have whitespace are left out. The text inside the elements of the list is trimmed, but not the
+     * text of the list itself.
+     * @param nodes The nodes
+     * @return The XML of the nodes
+     */
+    public static String toString(NodeList nodes) {
+        final int n = nodes.getLength();
+        if (n == 1 && nodes.item(0).getNodeType() == Node.TEXT_NODE) {
+            final String text = nodes.item(0).getNodeValue();
+            return isWhitespace(text) ? "" : escapeText(text, false);
+        }
+        final StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < n; i++) {
+            final Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE || !isWhitespace(node.getTextContent())) {
+                write(node, false, sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The text content of a node, with the text inside every element trimmed
+     * @param node The node
+     * @return The text, as Node.getTextContent() would give it
+     */
+    public static String trimmedTextContent(Node node) {
+        if (node.getNodeType() != Node.ELEMENT_NODE) {
+            return node.getTextContent();
+        }
+        final StringBuilder sb = new StringBuilder();
+        appendTrimmedText(node, sb);
+        return sb.toString();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    /**
+     * Writes a node
+     * @param trim Whether the node is inside an element, so that its text has to be trimmed
+     */
+    private static void write(Node node, boolean trim, StringBuilder sb) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement(node, sb);
+                break;
+            case Node.TEXT_NODE:
+                sb.append(escapeText(trim ? node.getNodeValue().trim() : node.getNodeValue(), trim));
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writeCData(trim ? node.getNodeValue().trim() : node.getNodeValue(), sb);
+                break;
+            case Node.COMMENT_NODE:
+                sb.append("<!--").append(trim ? node.getNodeValue().trim() : node.getNodeValue()).append("-->");
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                final String data = trim ? node.getNodeValue().trim() : node.getNodeValue();
+                sb.append("<?").append(node.getNodeName());
+                if (!data.isEmpty() && !Character.isSpaceChar(data.charAt(0))) {
+                    sb.append(' ');
+                }
+                sb.append(data);
+                sb.append("?>");
+                break;
+            default:
+                //Entity references are expanded by the parser, and other nodes are not inside elements
+                final NodeList children = node.getChildNodes();
+                for (int i = 0; i < children.getLength(); i++) {
+                    write(children.item(i), trim, sb);
+                }
+        }
+    }
+
+    private static void writeElement(Node element, StringBuilder sb) {
+        final String name = element.getNodeName();
+        sb.append('<').append(name);
+        final NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            sb.append(' ').append(attribute.getName()).append("=\"");
+            escapeAttribute(attribute.getValue(), sb);
+            sb.append('"');
+        }
+        //The start tag is only closed by content which is not empty
+        boolean open = true;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (open && isEmpty(child)) {
+                continue;
+            }
+            if (open) {
+                sb.append('>');
+                open = false;
+            }
+            write(child, true, sb);
+        }
+        if (open) {
+            sb.append("/>");
+        } else {
+            sb.append("</").append(name).append('>');
+        }
+    }
+
+    /**
+     * Whether a node inside an element writes nothing
+     */
+    private static boolean isEmpty(Node node) {
+        final short type = node.getNodeType();
+        return (type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE) && node.getNodeValue().trim().isEmpty();
+    }
+
+    /**
+     * Writes a CDATA section. Like the transformer, a section starting with a character outside of the Basic
+     * Multilingual Plane is only opened by the next character of the BMP, so that character is written before
+     * it, and a section with nothing else is not written at all.
+     */
+    private static void writeCData(String data, StringBuilder sb) {
+        final int n = data.length();
+        boolean open = n > 0 && !Character.isSurrogate(data.charAt(0));
+        if (open) {
+            sb.append("<![CDATA[");
+        }
+        for (int i = 0; i < n; i++) {
+            final char c = data.charAt(i);
+            if (c == '\n') {
+                sb.append(LINE_SEPARATOR);
+            } else if (Character.isSurrogate(c)) {
+                sb.append(c);
+            } else if (c == ']' && i < n - 2 && data.charAt(i + 1) == ']' && data.charAt(i + 2) == '>') {
+                sb.append("]]]]><![CDATA[>");
+                i += 2;
+            } else {
+                if (!open) {
+                    sb.append("<![CDATA[");
+                    open = true;
+                }
+                sb.append(c);
+            }
+        }
+        if (open) {
+            sb.append("]]>");
+        }
+    }
+
+    private static String escapeText(String text, boolean inElement) {
+        final int n = text.length();
+        int i = 0;
+        while (i < n && !needsEscape(text.charAt(i), inElement)) {
+            i++;
+        }
+        if (i == n) {
+            return text;
+        }
+        final StringBuilder sb = new StringBuilder(n + 16);
+        sb.append(text, 0, i);
+        for (; i < n; i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\n':
+                    sb.append(LINE_SEPARATOR);
+                    break;
+                case '\r':
+                    sb.append(inElement ? "&#13;" : "\r");
+                    break;
+                default:
+                    i = appendChar(text, i, sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean needsEscape(char c, boolean inElement) {
+        return c == '&' || c == '<' || c == '>' || (c == '\r' && inElement) || (c == '\n' && !"\n".equals(LINE_SEPARATOR))
+                || (c >= 0x7f && c <= 0x9f) || Character.isSurrogate(c);
+    }
+
+    private static void escapeAttribute(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\n':
+                    sb.append("&#10;");
+                    break;
+                case '\r':
+                    sb.append("&#13;");
+                    break;
+                case '\t':
+                    sb.append("&#9;");
+                    break;
+                default:
+                    //Unlike in text, control characters are written as they are
+                    if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                        i = appendChar(value, i, sb);
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Appends a character which is not markup, as a character reference if it is a control character or
+     * outside of the Basic Multilingual Plane
+     * @return The index of the last char used
+     */
+    private static int appendChar(String s, int i, StringBuilder sb) {
+        final char c = s.charAt(i);
+        if (c >= 0x7f && c <= 0x9f) {
+            sb.append("&#").append((int) c).append(';');
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            sb.append("&#").append(Character.toCodePoint(c, s.charAt(i + 1))).append(';');
+            return i + 1;
+        } else {
+            sb.append(c);
+        }
+        return i;
+    }
+
+    private static void appendTrimmedText(Node node, StringBuilder sb) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                case Node.ENTITY_REFERENCE_NODE:
+                    appendTrimmedText(child, sb);
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    sb.append(child.getNodeValue().trim());
+                    break;
+                default:
+                    //Comments and processing instructions are not part of the text content
+            }
+        }
+    }
+
+    /**
+     * Whether a string matches \s*
+     */
+    private static boolean isWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != 0x0b && c != '\f' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
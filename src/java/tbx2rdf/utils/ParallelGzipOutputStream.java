@@ -0,0 +1,224 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip output compressed in parallel.
+ *
+ * The bytes written are cut into blocks, and every block is compressed on its own as a complete gzip
+ * member by a pool of threads. A writer thread appends the members to the output in order. A sequence
+ * of gzip members is a valid gzip file (RFC 1952), which gunzip, zcat and the triple store loaders read
+ * as a single stream. The number of blocks in flight is bounded.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private static final Future<byte[]> END = new Future<byte[]>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public byte[] get() {
+            return null;
+        }
+
+        @Override
+        public byte[] get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    };
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final ExecutorService compressors;
+    ///Blocks being compressed, in the order they have to be written
+    private final BlockingQueue<Future<byte[]>> blocks;
+    private final Thread writer;
+    private volatile IOException error = null;
+
+    private byte[] block;
+    private int count = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a gzip output with blocks of 1 MB
+     * @param out The output of the compressed bytes. It is closed with this one.
+     * @param threads Number of compression threads
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads) {
+        this(out, threads, 1 << 20);
+    }
+
+    /**
+     * Creates a gzip output
+     * @param out The output of the compressed bytes. It is closed with this one.
+     * @param threads Number of compression threads
+     * @param blockSize Number of uncompressed bytes of every block
+     */
+    public ParallelGzipOutputStream(final OutputStream out, int threads, int blockSize) {
+        this.out = out;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        threads = Math.max(1, threads);
+        this.blocks = new ArrayBlockingQueue<Future<byte[]>>(threads * 2);
+        this.compressors = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, "tbx2rdf-gzip-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Future<byte[]> next;
+                    while ((next = blocks.take()) != END) {
+                        out.write(next.get());
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } catch (ExecutionException e) {
+                    error = new IOException(e.getCause());
+                } catch (InterruptedException e) {
+                    error = new InterruptedIOException();
+                } catch (Throwable e) {
+                    error = new IOException(e);
+                }
+                if (error != null) {
+                    //Nobody will take the blocks anymore
+                    blocks.clear();
+                }
+            }
+        }, "tbx2rdf-gzip-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == blockSize) {
+            submit();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == blockSize) {
+                submit();
+            }
+            final int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Does nothing: a block is only compressed when it is full or the stream is closed, as
+     * many small gzip members would compress badly
+     */
+    @Override
+    public void flush() throws IOException {
+        checkError();
+    }
+
+    /**
+     * Compresses the last block, waits for all the blocks to be written and closes the output
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            try {
+                if (count > 0) {
+                    submit();
+                }
+                put(END);
+                writer.join();
+            } catch (InterruptedException e) {
+                writer.interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                compressors.shutdownNow();
+            }
+            checkError();
+        } finally {
+            //Also when the writer has failed, so that the file is not left open
+            out.close();
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private void submit() throws IOException {
+        checkError();
+        final byte[] data = block;
+        final int length = count;
+        put(compressors.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 3 + 64);
+                final GZIPOutputStream gzip = new GZIPOutputStream(bytes, 1 << 16);
+                gzip.write(data, 0, length);
+                gzip.close();
+                return bytes.toByteArray();
+            }
+        }));
+        block = new byte[blockSize];
+        count = 0;
+    }
+
+    private void put(Future<byte[]> future) throws IOException {
+        try {
+            while (!blocks.offer(future, 1, TimeUnit.SECONDS)) {
+                checkError();
+                if (!writer.isAlive()) {
+                    throw new IOException("The gzip writer has stopped");
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+}
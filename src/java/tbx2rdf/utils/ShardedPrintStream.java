@@ -0,0 +1,213 @@
+package tbx2rdf.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * N-Triples output split into shards of bounded size, so that the triple stores can load them in parallel.
+ *
+ * The writer of the triples tells when an entry ends with endOfEntry(): only then, if the current shard has
+ * reached the maximum size or number of triples, a new shard is started. The triples of a concept are thus
+ * never split. On close, a manifest lists every shard with its number of triples, its size and the SHA-256
+ * of the file, which can be checked with sha256sum.
+ *
+ * The shards are named base-00000.nt, base-00001.nt... (.nt.gz if compressed) and the manifest base.manifest.tsv
+ */
+public class ShardedPrintStream extends PrintStream {
+
+    private final String base;
+    private final long maxBytes;
+    private final long maxTriples;
+    private final boolean gzip;
+    private final int threads;
+    private final List<Shard> shards = new ArrayList<Shard>();
+    private final ShardSwitch switcher;
+
+    /**
+     * Creates the output and its first shard
+     * @param base Path of the shards, without extension
+     * @param maxBytes Size of the N-Triples of a shard, uncompressed, from which a new shard is started. 0 for no limit.
+     * @param maxTriples Number of triples of a shard from which a new shard is started. 0 for no limit.
+     * @param gzip Whether the shards are gzip compressed
+     * @param threads Number of threads compressing each shard
+     */
+    public ShardedPrintStream(String base, long maxBytes, long maxTriples, boolean gzip, int threads) throws IOException {
+        this(new ShardSwitch(), base, maxBytes, maxTriples, gzip, threads);
+    }
+
+    private ShardedPrintStream(ShardSwitch switcher, String base, long maxBytes, long maxTriples, boolean gzip, int threads) throws IOException {
+        super(switcher, false, "UTF-8");
+        this.switcher = switcher;
+        switcher.owner = this;
+        this.base = base;
+        this.maxBytes = maxBytes;
+        this.maxTriples = maxTriples;
+        this.gzip = gzip;
+        this.threads = threads;
+        startShard();
+    }
+
+    /**
+     * Tells that the triples written so far can be separated from the following ones.
+     * If the current shard is full, it is closed and the next bytes written go to a new one.
+     */
+    public void endOfEntry() throws IOException {
+        final Shard shard = switcher.current;
+        if (shard != null && ((maxBytes > 0 && shard.bytes >= maxBytes) || (maxTriples > 0 && shard.triples >= maxTriples))) {
+            flush();
+            shard.close();
+            switcher.current = null;
+        }
+    }
+
+    /**
+     * Closes the last shard and writes the manifest
+     */
+    @Override
+    public void close() {
+        flush();
+        try {
+            if (switcher.current != null) {
+                switcher.current.close();
+            }
+            writeManifest();
+        } catch (IOException e) {
+            setError();
+        }
+        super.close();
+    }
+
+    /**
+     * Path of the manifest
+     */
+    public String getManifest() {
+        return base + ".manifest.tsv";
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private void startShard() throws IOException {
+        final String file = String.format("%s-%05d.nt%s", base, shards.size(), gzip ? ".gz" : "");
+        final Shard shard = new Shard(file, gzip, threads);
+        shards.add(shard);
+        switcher.current = shard;
+    }
+
+    private void writeManifest() throws IOException {
+        final PrintStream manifest = new PrintStream(getManifest(), "UTF-8");
+        manifest.print("file\ttriples\tbytes\tsha256\n");
+        for (Shard shard : shards) {
+            final int slash = Math.max(shard.file.lastIndexOf('/'), shard.file.lastIndexOf('\\'));
+            manifest.print(shard.file.substring(slash + 1) + "\t" + shard.triples + "\t" + shard.fileBytes + "\t" + shard.sha256 + "\n");
+        }
+        manifest.close();
+        if (manifest.checkError()) {
+            throw new IOException("The manifest " + getManifest() + " could not be written");
+        }
+    }
+
+    /**
+     * Forwards the bytes to the current shard, starting it if needed
+     */
+    private static class ShardSwitch extends OutputStream {
+
+        ShardedPrintStream owner;
+        Shard current;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (current == null) {
+                owner.startShard();
+            }
+            current.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (current == null) {
+                owner.startShard();
+            }
+            current.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (current != null) {
+                current.flush();
+            }
+        }
+    }
+
+    /**
+     * A shard, counting its triples and computing the checksum of its file
+     */
+    private static class Shard extends OutputStream {
+
+        final String file;
+        private final CountingOutputStream counter;
+        private final DigestOutputStream digest;
+        private final OutputStream out;
+        long bytes = 0;
+        long triples = 0;
+        long fileBytes = 0;
+        String sha256 = null;
+
+        Shard(String file, boolean gzip, int threads) throws IOException {
+            this.file = file;
+            try {
+                counter = new CountingOutputStream(new FileOutputStream(file));
+                digest = new DigestOutputStream(counter, MessageDigest.getInstance("SHA-256"));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+            out = gzip ? new ParallelGzipOutputStream(digest, threads) : new BufferedOutputStream(digest, 1 << 16);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+            if (b == '\n') {
+                triples++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    triples++;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (sha256 != null) {
+                return;
+            }
+            out.close();
+            fileBytes = counter.getCount();
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : digest.getMessageDigest().digest()) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            sha256 = hex.toString();
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package tbx2rdf.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.WebContent;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.web.HttpOp;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import tbx2rdf.Main;
+
+/**
+ * Uploads the triples of a file to a SPARQL endpoint, such as Virtuoso, Fuseki or any other store which supports
+ * SPARQL 1.1 Update or the Graph Store Protocol.
+ *
+ * The file, in any RDF syntax known by Jena (Turtle, RDF Thrift...), is parsed as a stream and cut into batches
+ * of N-Triples; the lines of an N-Triples file, gzipped or not, are taken as they are. The batches are sent by
+ * several threads through a pool of connections: the requests are authenticated once per connection instead of
+ * once per batch. The size of the batches adapts to the endpoint: they double while the requests are faster
+ * than the target time, and they are halved when the requests are slower, time out or are too large.
+ *
+ * When the endpoint is not found or the user is not allowed to update it, the upload stops at once.
+ * When the endpoint is unavailable (no connection, 408, 429, 502, 503 or 504), a batch is sent again after a
+ * delay which doubles every time, and the upload stops when the retries are exhausted. When the endpoint refuses
+ * a batch for any other reason, the batch is split in two halves which are sent separately, down to the triples
+ * which cannot be uploaded: they are logged, written to the file of the rejected triples if there is one, and
+ * the upload goes on. It stops however when too large a fraction of the triples is refused, or when many triples
+ * in a row fail with a server error, as the endpoint is then broken rather than refusing some triples.
+ *
+ * The blank nodes are not shared between batches: a blank node in two batches becomes two blank nodes.
+ */
+public class SparqlUploader implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(SparqlUploader.class);
+
+    ///Longest delay between retries
+    private static final long MAX_BACKOFF = 60000;
+
+    ///Triples between the messages about the progress
+    private static final long PROGRESS = 100000;
+
+    ///Number of rejected triples from which their fraction is checked, so that a few bad triples at the start do not stop the upload
+    private static final long REJECTED_SAMPLE = 100;
+
+    private final UploadOptions options;
+    private final PoolingHttpClientConnectionManager pool;
+    private final CloseableHttpClient client;
+    ///Context of each thread, which keeps the authentication of its connection
+    private final ThreadLocal<HttpClientContext> contexts = new ThreadLocal<HttpClientContext>() {
+        @Override
+        protected HttpClientContext initialValue() {
+            return HttpClientContext.create();
+        }
+    };
+    private final String url;
+    private final PrintStream rejects;
+
+    private volatile int batchSize;
+    private volatile IOException failure = null;
+    private final AtomicLong uploaded = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    ///Triples refused in a row with a server error
+    private final AtomicLong serverErrors = new AtomicLong();
+
+    /**
+     * @param options The endpoint and the options of the upload
+     * @throws IllegalArgumentException If there is no endpoint
+     */
+    public SparqlUploader(UploadOptions options) throws IOException {
+        if (options.gspEndpoint == null && options.updateEndpoint == null) {
+            throw new IllegalArgumentException("No SPARQL Update nor Graph Store Protocol endpoint");
+        }
+        this.options = options;
+        this.batchSize = Math.max(options.minBatchSize, Math.min(options.maxBatchSize, options.batchSize));
+        if (options.gspEndpoint != null) {
+            url = options.gspEndpoint + (options.gspEndpoint.contains("?") ? "&" : "?")
+                    + (options.graph == null ? "default" : "graph=" + URLEncoder.encode(options.graph, "UTF-8"));
+        } else {
+            url = options.updateEndpoint;
+        }
+        pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(options.threads);
+        pool.setDefaultMaxPerRoute(options.threads);
+        final HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(options.timeoutMillis)
+                        .setSocketTimeout(options.timeoutMillis)
+                        .build());
+        if (options.user != null) {
+            final CredentialsProvider credentials = new BasicCredentialsProvider();
+            credentials.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(options.user, options.password));
+            builder.setDefaultCredentialsProvider(credentials);
+        }
+        client = builder.build();
+        rejects = options.rejected == null ? null : new PrintStream(new FileOutputStream(options.rejected), true, "UTF-8");
+    }
+
+    /**
+     * Uploads the triples of a file. The quads of a dataset are added to the graph of the upload.
+     * @param filename The file, whose syntax is guessed from its extension
+     * @throws IOException If the file cannot be read or the endpoint stays unavailable
+     */
+    public void upload(String filename) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(options.threads);
+        final long start = System.currentTimeMillis();
+        try {
+            final Batcher batcher = new Batcher(executor);
+            final boolean gzip = filename.endsWith(".gz");
+            if (RDFLanguages.filenameToLang(gzip ? filename.substring(0, filename.length() - 3) : filename) == Lang.NTRIPLES) {
+                //The lines are sent as they are, the endpoint refuses the invalid ones
+                final InputStream in = gzip ? new GZIPInputStream(new FileInputStream(filename), 1 << 16) : new FileInputStream(filename);
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"), 1 << 16);
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty() && !line.startsWith("#")) {
+                            batcher.add(line);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } else {
+                RDFDataMgr.parse(new StreamRDFBase() {
+                    @Override
+                    public void triple(Triple triple) {
+                        batcher.add(NodeFmtLib.str(triple) + " .");
+                    }
+
+                    @Override
+                    public void quad(Quad quad) {
+                        triple(quad.asTriple());
+                    }
+                }, filename);
+            }
+            batcher.finish();
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (Abort x) {
+            throw x.cause;
+        } catch (InterruptedException x) {
+            throw new InterruptedIOException();
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("Uploaded " + uploaded.get() + " triples in " + requests.get() + " requests and "
+                + (System.currentTimeMillis() - start) / 1000 + " s, " + rejected.get() + " rejected");
+    }
+
+    ///Number of triples uploaded
+    public long getUploaded() {
+        return uploaded.get();
+    }
+
+    ///Number of triples refused by the endpoint
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    ///Number of requests sent, including the failed ones
+    public long getRequests() {
+        return requests.get();
+    }
+
+    ///Current size of the batches, in characters
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Closes the connections and the file of the rejected triples
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            client.close();
+        } finally {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+
+    /**
+     * Uploads the triples of a file to the endpoint of a configuration file
+     * @param args The file to upload, followed by the configuration file (tbx2rdf.properties by default)
+     */
+    public static void main(String[] args) {
+        PropertyConfigurator.configure("log4j.properties");
+        if (args.length == 0) {
+            System.err.println("Usage: SparqlUploader <file> [<configuration>]");
+            return;
+        }
+        try {
+            final Properties prop = new Properties();
+            final InputStream in = new FileInputStream(args.length > 1 ? args[1] : "tbx2rdf.properties");
+            try {
+                prop.load(in);
+            } finally {
+                in.close();
+            }
+            final SparqlUploader uploader = new SparqlUploader(readOptions(prop));
+            try {
+                uploader.upload(args[0]);
+            } finally {
+                uploader.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    /**
+     * Sends a batch, again while the endpoint is unavailable, and in halves if it is refused
+     * @param full Whether the batch has the current size, so that its time tells how the size has to change
+     */
+    private void send(List<String> triples, boolean full) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            final long start = System.currentTimeMillis();
+            try {
+                requests.incrementAndGet();
+                post(triples);
+                if (full) {
+                    adapt(System.currentTimeMillis() - start);
+                }
+                uploaded.addAndGet(triples.size());
+                serverErrors.set(0);
+                return;
+            } catch (HttpException x) {
+                final int code = x.getResponseCode();
+                final boolean timeout = x.getCause() instanceof SocketTimeoutException;
+                if (code == 413 || timeout) {
+                    shrink();
+                }
+                if (timeout && triples.size() > 1) {
+                    //Too slow rather than unavailable
+                    split(triples);
+                    return;
+                }
+                if (isMisconfigured(code)) {
+                    throw new IOException("The endpoint " + url + " refuses the uploads: " + message(x), x);
+                }
+                if (!isUnavailable(code)) {
+                    if (triples.size() == 1) {
+                        reject(triples.get(0), x);
+                    } else {
+                        split(triples);
+                    }
+                    return;
+                }
+                if (attempt >= options.retries) {
+                    throw new IOException("The endpoint " + url + " is unavailable: " + message(x), x);
+                }
+                final long delay = Math.min(MAX_BACKOFF, options.backoffMillis << attempt);
+                logger.warn("The endpoint is unavailable (" + message(x) + "), retrying in " + delay + " ms");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ix) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+
+    private void split(List<String> triples) throws IOException {
+        final int half = triples.size() / 2;
+        send(triples.subList(0, half), false);
+        send(triples.subList(half, triples.size()), false);
+    }
+
+    private void post(List<String> triples) {
+        int length = 64;
+        for (String triple : triples) {
+            length += triple.length() + 1;
+        }
+        final StringBuilder body = new StringBuilder(length);
+        if (options.gspEndpoint == null && options.graph != null) {
+            body.append("INSERT DATA { GRAPH <").append(options.graph).append("> {\n");
+        } else if (options.gspEndpoint == null) {
+            body.append("INSERT DATA {\n");
+        }
+        for (String triple : triples) {
+            body.append(triple).append('\n');
+        }
+        if (options.gspEndpoint == null) {
+            body.append(options.graph != null ? "} }" : "}");
+        }
+        final String contentType = options.gspEndpoint != null ? WebContent.contentTypeNTriples : WebContent.contentTypeSPARQLUpdate;
+        HttpOp.execHttpPost(url, contentType, body.toString(), client, contexts.get());
+    }
+
+    /**
+     * Changes the size of the batches after a request of the current size
+     */
+    private synchronized void adapt(long millis) {
+        if (millis < options.targetMillis / 2) {
+            batchSize = (int) Math.min(options.maxBatchSize, 2L * batchSize);
+        } else if (millis > options.targetMillis) {
+            shrink();
+        }
+    }
+
+    private synchronized void shrink() {
+        batchSize = Math.max(options.minBatchSize, batchSize / 2);
+    }
+
+    /**
+     * Records a triple refused by the endpoint
+     * @throws IOException If too many triples have been refused
+     */
+    private void reject(String triple, HttpException x) throws IOException {
+        final long count = rejected.incrementAndGet();
+        final long failures;
+        if (x.getResponseCode() >= 500) {
+            failures = serverErrors.incrementAndGet();
+        } else {
+            //The endpoint works, it refuses this triple
+            serverErrors.set(0);
+            failures = 0;
+        }
+        logger.warn("Triple refused by the endpoint (" + message(x) + "): " + triple);
+        if (rejects != null) {
+            synchronized (rejects) {
+                rejects.println(triple);
+            }
+        }
+        if (options.maxServerErrors > 0 && failures >= options.maxServerErrors) {
+            throw new IOException("The endpoint " + url + " fails: " + failures + " triples in a row refused, the last one with " + message(x), x);
+        }
+        final long total = count + uploaded.get();
+        if (count >= REJECTED_SAMPLE && count > options.maxRejectedRatio * total) {
+            throw new IOException("The endpoint " + url + " has refused " + count + " of " + total + " triples, the last one with " + message(x), x);
+        }
+    }
+
+    /**
+     * Whether a status means that the request may succeed later. -1 is a failure of the connection.
+     */
+    private static boolean isUnavailable(int code) {
+        return code == -1 || code == 408 || code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Whether a status means that no request will succeed, whatever the triples
+     */
+    private static boolean isMisconfigured(int code) {
+        return code == 401 || code == 403 || code == 404 || code == 405 || code == 415;
+    }
+
+    private static String message(HttpException x) {
+        return x.getResponseCode() == -1 ? String.valueOf(x.getCause() != null ? x.getCause() : x.getMessage()) : x.getMessage();
+    }
+
+    private static UploadOptions readOptions(Properties prop) {
+        final UploadOptions options = new UploadOptions();
+        options.updateEndpoint = emptyToNull(prop.getProperty("upload.endpoint"));
+        options.gspEndpoint = emptyToNull(prop.getProperty("upload.gsp"));
+        options.graph = emptyToNull(prop.getProperty("upload.graph"));
+        options.user = emptyToNull(prop.getProperty("upload.user"));
+        options.password = prop.getProperty("upload.password", "").trim();
+        options.threads = Integer.parseInt(prop.getProperty("upload.threads", String.valueOf(options.threads)).trim());
+        options.batchSize = (int) Main.parseSize(prop.getProperty("upload.batchsize", String.valueOf(options.batchSize)));
+        options.maxBatchSize = (int) Main.parseSize(prop.getProperty("upload.maxbatchsize", String.valueOf(options.maxBatchSize)));
+        options.targetMillis = Long.parseLong(prop.getProperty("upload.target", String.valueOf(options.targetMillis)).trim());
+        options.retries = Integer.parseInt(prop.getProperty("upload.retries", String.valueOf(options.retries)).trim());
+        options.backoffMillis = Long.parseLong(prop.getProperty("upload.backoff", String.valueOf(options.backoffMillis)).trim());
+        options.timeoutMillis = Integer.parseInt(prop.getProperty("upload.timeout", String.valueOf(options.timeoutMillis)).trim());
+        options.rejected = emptyToNull(prop.getProperty("upload.rejected"));
+        options.maxRejectedRatio = Double.parseDouble(prop.getProperty("upload.maxrejected", String.valueOf(options.maxRejectedRatio)).trim());
+        options.maxServerErrors = Integer.parseInt(prop.getProperty("upload.maxservererrors", String.valueOf(options.maxServerErrors)).trim());
+        return options;
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+    }
+
+    /**
+     * Cuts the triples into batches, which are uploaded by the threads of an executor
+     */
+    private class Batcher {
+
+        private final ExecutorService executor;
+        ///Batches read ahead of the uploads, so that the threads do not wait for the file
+        private final Semaphore inFlight = new Semaphore(options.threads * 2);
+        private List<String> batch = new ArrayList<String>();
+        private int size = 0;
+        private long count = 0;
+
+        Batcher(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Adds a triple
+         * @param triple The triple in N-Triples, ended by the dot
+         */
+        void add(String triple) {
+            batch.add(triple);
+            size += triple.length() + 1;
+            if (++count % PROGRESS == 0) {
+                logger.info("Read " + count + " triples, uploaded " + uploaded.get() + ", batches of " + batchSize + " characters");
+            }
+            if (size >= batchSize) {
+                submit();
+            }
+        }
+
+        void finish() {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            final List<String> triples = batch;
+            final boolean full = size >= batchSize;
+            batch = new ArrayList<String>(triples.size());
+            size = 0;
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException x) {
+                throw new Abort(new InterruptedIOException());
+            }
+            if (failure != null) {
+                throw new Abort(failure);
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (failure == null) {
+                            send(triples, full);
+                        }
+                    } catch (IOException x) {
+                        failure = x;
+                    } catch (RuntimeException x) {
+                        failure = new IOException(x);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the parser of the file when the upload fails
+     */
+    private static class Abort extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final IOException cause;
+
+        Abort(IOException cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package tbx2rdf.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+/**
+ * A write-only Jena graph that hands every triple added to it to a StreamRDF as soon as it is produced.
+ * Wrapped in a Model, it lets the toRDF methods of the TBX types write straight into a serializer
+ * without building an in-memory graph.
+ *
+ * The graph does not keep the triples, so it cannot be queried. Only the triples added since the last
+ * call to reset() are remembered, to avoid emitting the same triple twice within an entry.
+ */
+public class StreamRDFGraph extends GraphBase {
+
+    private final StreamRDF out;
+    private final Set<Triple> seen = new HashSet<Triple>();
+
+    /**
+     * @param out The destination of the triples
+     */
+    public StreamRDFGraph(StreamRDF out) {
+        this.out = out;
+    }
+
+    /**
+     * Forgets the triples emitted so far. To be called at the beginning of every entry.
+     */
+    public void reset() {
+        seen.clear();
+    }
+
+    @Override
+    public void performAdd(Triple t) {
+        if (seen.add(t)) {
+            out.triple(t);
+        }
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        return NullIterator.instance();
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return 0;
+    }
+}
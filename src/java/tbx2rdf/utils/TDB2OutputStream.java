@@ -0,0 +1,274 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.PrefixMapFactory;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.thrift.TRDF;
+import org.apache.jena.riot.thrift.Thrift2StreamRDF;
+import org.apache.jena.riot.thrift.wire.RDF_StreamRow;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.loader.DataLoader;
+import org.apache.jena.tdb2.loader.LoaderFactory;
+import org.apache.jena.tdb2.loader.base.LoaderOps;
+import org.apache.jena.tdb2.loader.base.MonitorOutput;
+import org.apache.log4j.Logger;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * An output which loads the RDF Thrift written to it into a TDB2 database with the bulk loader of Jena, so that
+ * the database can be queried as soon as the conversion finishes, without writing and parsing N-Triples.
+ *
+ * The rows are decoded as they are written, with the prefixes declared before them, and handed in batches to a
+ * thread which feeds the loader: the conversion goes on while the loader stores the previous batch. The bulk
+ * load is a single transaction, which is committed when the output is closed, or aborted if the conversion
+ * fails. The parallel loader, the default, builds every index in its own thread.
+ */
+public class TDB2OutputStream extends OutputStream {
+
+    private static final Logger logger = Logger.getLogger(TDB2OutputStream.class);
+
+    ///Default number of triples handed to the loader at a time
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    ///Marks the end of the batches
+    private static final Batch END = new Batch(0);
+
+    private final DatasetGraph dataset;
+    private final int batchSize;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(4);
+    private final Thread thread;
+    private volatile Throwable failure = null;
+    private boolean closed = false;
+
+    ///Bytes written which do not make a whole row yet
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+    private final TMemoryInputTransport transport = new TMemoryInputTransport();
+    private final TCompactProtocol protocol = new TCompactProtocol(transport);
+    private final RDF_StreamRow row = new RDF_StreamRow();
+    private final Thrift2StreamRDF decoder;
+    private Batch batch;
+
+    /**
+     * Opens the database, which is created if it does not exist, and starts loading
+     * @param location Directory of the database
+     * @param loader The loader: parallel, phased, sequential or basic
+     * @param batchSize Number of triples handed to the loader at a time
+     */
+    public TDB2OutputStream(String location, String loader, int batchSize) {
+        this.dataset = DatabaseMgr.connectDatasetGraph(location);
+        this.batchSize = Math.max(1, batchSize);
+        this.batch = new Batch(this.batchSize);
+        this.decoder = new Thrift2StreamRDF(PrefixMapFactory.create(), new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                batch.triples.add(triple);
+            }
+
+            @Override
+            public void quad(Quad quad) {
+                batch.triples.add(quad.asTriple());
+            }
+
+            @Override
+            public void prefix(String prefix, String iri) {
+                batch.prefixes.put(prefix, iri);
+            }
+        });
+        final DataLoader dataLoader;
+        try {
+            dataLoader = createLoader(loader, dataset, LoaderOps.outputTo(System.err));
+        } catch (IllegalArgumentException x) {
+            dataset.close();
+            throw x;
+        }
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load(dataLoader);
+            }
+        }, "tbx2rdf-tdb2-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The output is closed");
+        }
+        checkFailure();
+        final byte[] buffer;
+        if (pending.size() == 0) {
+            buffer = b;
+        } else {
+            pending.write(b, off, len);
+            buffer = pending.toByteArray();
+            off = 0;
+            len = buffer.length;
+            pending.reset();
+        }
+        transport.reset(buffer, off, len);
+        int start = off;
+        try {
+            while (transport.getBytesRemainingInBuffer() > 0) {
+                start = transport.getBufferPosition();
+                protocol.reset();
+                row.clear();
+                row.read(protocol);
+                TRDF.visit(row, decoder);
+                if (batch.triples.size() >= batchSize) {
+                    send(batch);
+                    batch = new Batch(batchSize);
+                }
+            }
+        } catch (TTransportException x) {
+            //The memory transport only fails when the row goes on in the next write
+            pending.write(buffer, start, off + len - start);
+        } catch (TException x) {
+            throw new IOException(x);
+        }
+    }
+
+    /**
+     * Hands the last batch to the loader and waits for the load to be committed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (pending.size() > 0) {
+                stop();
+                throw new IOException("The output ends in the middle of a row");
+            }
+            send(batch);
+            send(END);
+            thread.join();
+            checkFailure();
+        } catch (InterruptedException x) {
+            thread.interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            dataset.close();
+        }
+    }
+
+    /**
+     * Gives up the load when the conversion has not finished: its transaction is aborted instead of being
+     * committed, so the database keeps what it had before
+     */
+    public void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            stop();
+        } catch (InterruptedException x) {
+            throw new InterruptedIOException();
+        } finally {
+            dataset.close();
+        }
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    ///Interrupts the thread of the loader, which aborts the transaction of the load
+    private void stop() throws InterruptedException {
+        thread.interrupt();
+        thread.join();
+    }
+
+    /**
+     * Feeds the loader with the batches until the end is reached, in the thread of the loader, which owns the
+     * transaction of the load
+     */
+    private void load(DataLoader loader) {
+        try {
+            loader.startBulk();
+            final StreamRDF stream = loader.stream();
+            Batch next;
+            while ((next = queue.take()) != END) {
+                for (Map.Entry<String, String> prefix : next.prefixes.entrySet()) {
+                    stream.prefix(prefix.getKey(), prefix.getValue());
+                }
+                for (Triple triple : next.triples) {
+                    stream.triple(triple);
+                }
+            }
+            loader.finishBulk();
+            logger.info("Loaded " + loader.countTriples() + " triples");
+        } catch (Throwable x) {
+            logger.error("The load failed: " + x.getMessage());
+            failure = x;
+            loader.finishException(x instanceof Exception ? (Exception) x : new RuntimeException(x));
+            queue.clear();
+        }
+    }
+
+    private void send(Batch batch) throws IOException {
+        try {
+            while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException x) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("The load failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static DataLoader createLoader(String loader, DatasetGraph dataset, MonitorOutput output) {
+        if (loader.equals("parallel")) {
+            return LoaderFactory.parallelLoader(dataset, output);
+        } else if (loader.equals("phased")) {
+            return LoaderFactory.phasedLoader(dataset, output);
+        } else if (loader.equals("sequential")) {
+            return LoaderFactory.sequentialLoader(dataset, output);
+        } else if (loader.equals("basic")) {
+            return LoaderFactory.basicLoader(dataset, output);
+        }
+        throw new IllegalArgumentException("Unknown loader " + loader + ", the loaders are parallel, phased, sequential and basic");
+    }
+
+    /**
+     * Triples and the prefixes declared before them
+     */
+    private static class Batch {
+
+        final List<Triple> triples;
+        final Map<String, String> prefixes = new LinkedHashMap<String, String>();
+
+        Batch(int size) {
+            triples = new ArrayList<Triple>(size);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package tbx2rdf.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.apache.log4j.Logger;
+import org.xml.sax.InputSource;
+
+/**
+ * Single-pass pull scanner that cuts a TBX document into its termEntry subtrees
+ * (and optionally other elements such as the martifHeader).
+ *
+ * The scanner is aware of the lexical structure of XML (comments, CDATA sections, processing
+ * instructions, the DOCTYPE and quoted attribute values), so entries sharing a line, tags spanning
+ * several lines or a "&lt;termEntry" inside a comment are handled correctly. Only the markup is
+ * tokenized: the content of each entry is copied verbatim and left to the DOM parser.
+ *
+ * If a termEntry is not closed before the next one starts, the broken entry is dropped and the
+ * scanner resynchronizes on the new start tag.
+ *
+ * A StAX reader was not used here because it cannot continue after a well-formedness error,
+ * which would lose the rest of the file.
+ */
+public class TermEntryReader implements TermEntrySource, Closeable {
+
+    private final static Logger logger = Logger.getLogger(TermEntryReader.class);
+
+    ///Names of the elements we are cutting
+    private final String[] elements;
+    ///Input
+    private final Reader in;
+    private final char[] buf = new char[1 << 16];
+    private int pos = 0;
+    private int limit = 0;
+    ///Number of characters read before the current buffer
+    private long base = 0;
+
+    ///Entry being built
+    private final StringBuilder entry = new StringBuilder(4096);
+    ///Markup token being read
+    private final StringBuilder markup = new StringBuilder(256);
+    ///Element of the entry being built, null if we are not inside an entry
+    private String inside = null;
+    ///Element of the last entry returned
+    private String element = null;
+    ///Start tag of the document element
+    private String rootTag = null;
+    ///Entry given back with unread()
+    private String unread = null;
+    private String unreadElement = null;
+
+    private long entries = 0;
+    private long malformed = 0;
+
+    /**
+     * Creates a reader that extracts the termEntry elements
+     * @param in The TBX document
+     */
+    public TermEntryReader(Reader in) {
+        this(in, "termEntry");
+    }
+
+    /**
+     * Creates a reader that extracts the elements with the given names, in document order
+     * @param in The XML document
+     * @param elements The names of the elements to extract, for example "martifHeader" and "termEntry".
+     * They are not expected to be nested.
+     */
+    public TermEntryReader(Reader in, String... elements) {
+        this.in = in;
+        this.elements = elements;
+    }
+
+    /**
+     * Reads the next entry
+     * @return The XML of the next entry, or null if the end of the input has been reached
+     */
+    public String next() throws IOException {
+        if (unread != null) {
+            final String xml = unread;
+            element = unreadElement;
+            unread = null;
+            unreadElement = null;
+            return xml;
+        }
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<') {
+                if (inside != null) {
+                    entry.append((char) c);
+                }
+                continue;
+            }
+            readMarkup();
+            if (rootTag == null && isStartTag()) {
+                rootTag = markup.toString();
+            }
+            if (inside == null) {
+                final String name = match(false);
+                if (name != null) {
+                    start(name);
+                    if (isEmptyTag()) {
+                        return emit();
+                    }
+                }
+                continue;
+            }
+            final String name = match(false);
+            if (name != null) {
+                malformed++;
+                logger.warn("Unclosed " + inside + " found after " + entries + " entries, skipping it");
+                start(name);
+                if (isEmptyTag()) {
+                    return emit();
+                }
+                continue;
+            }
+            entry.append(markup);
+            if (inside.equals(match(true))) {
+                return emit();
+            }
+        }
+        if (inside != null) {
+            malformed++;
+            logger.warn("Unclosed " + inside + " at the end of the input");
+            inside = null;
+        }
+        return null;
+    }
+
+    @Override
+    public InputSource nextEntry() throws IOException {
+        final String xml = next();
+        return xml == null ? null : new InputSource(new StringReader(xml));
+    }
+
+    /**
+     * Number of characters read so far, which after next() is the position right after the entry returned.
+     * An entry given back with unread() is not taken into account.
+     */
+    @Override
+    public long getOffset() {
+        return base + pos;
+    }
+
+    /**
+     * Skips characters of the input, to resume the reading from a position given by getOffset().
+     * The position must be outside of any entry.
+     * @param offset The position
+     */
+    public void skipTo(long offset) throws IOException {
+        while (getOffset() < offset && read() != -1) {
+            pos += (int) Math.min(limit - pos, offset - getOffset());
+        }
+    }
+
+    /**
+     * Name of the element of the last entry returned by next()
+     */
+    public String getElement() {
+        return element;
+    }
+
+    /**
+     * Start tag of the document element, for example &lt;martif type="TBX" xml:lang="en"&gt;,
+     * or null if it has not been read yet
+     */
+    public String getRootTag() {
+        return rootTag;
+    }
+
+    /**
+     * Gives back the last entry returned by next(), so that the next call returns it again
+     * @param xml The entry
+     */
+    public void unread(String xml) {
+        unread = xml;
+        unreadElement = element;
+    }
+
+    /**
+     * Number of entries returned so far
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    @Override
+    public long getMalformed() {
+        return malformed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private void start(String name) {
+        inside = name;
+        entry.setLength(0);
+        entry.append(markup);
+    }
+
+    private String emit() {
+        element = inside;
+        inside = null;
+        entries++;
+        return entry.toString();
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            base += limit;
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+
+    /**
+     * Reads a whole markup token starting after the '&lt;' into the markup buffer
+     */
+    private void readMarkup() throws IOException {
+        markup.setLength(0);
+        markup.append('<');
+        int c = read();
+        if (c == -1) {
+            return;
+        }
+        markup.append((char) c);
+        if (c == '?') {
+            readUntil("?>");
+        } else if (c == '!') {
+            c = read();
+            if (c == -1) {
+                return;
+            }
+            markup.append((char) c);
+            if (c == '-') {
+                readUntil("-->");
+            } else if (c == '[') {
+                readUntil("]]>");
+            } else {
+                readDeclaration();
+            }
+        } else {
+            readTag();
+        }
+    }
+
+    private void readUntil(String terminator) throws IOException {
+        final char last = terminator.charAt(terminator.length() - 1);
+        int c;
+        while ((c = read()) != -1) {
+            markup.append((char) c);
+            if (c == last && endsWith(terminator)) {
+                return;
+            }
+        }
+    }
+
+    private boolean endsWith(String terminator) {
+        final int n = terminator.length();
+        final int len = markup.length();
+        if (len < n + 2) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (markup.charAt(len - n + i) != terminator.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a tag, ignoring any '&gt;' inside quoted attribute values
+     */
+    private void readTag() throws IOException {
+        int quote = 0;
+        int c;
+        while ((c = read()) != -1) {
+            markup.append((char) c);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a declaration such as the DOCTYPE, including an internal subset
+     */
+    private void readDeclaration() throws IOException {
+        int quote = 0;
+        int depth = 0;
+        int c;
+        while ((c = read()) != -1) {
+            markup.append((char) c);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == '>' && depth <= 0) {
+                return;
+            }
+        }
+    }
+
+    private boolean isStartTag() {
+        if (markup.length() < 2) {
+            return false;
+        }
+        final char c = markup.charAt(1);
+        return c != '/' && c != '!' && c != '?';
+    }
+
+    private boolean isEmptyTag() {
+        final int len = markup.length();
+        return len >= 3 && markup.charAt(len - 1) == '>' && markup.charAt(len - 2) == '/';
+    }
+
+    /**
+     * Tells whether the markup token is a start (or empty) tag or an end tag of one of the elements being cut
+     * @param end Whether we are looking for an end tag
+     * @return The name of the element, or null if the token is not such a tag
+     */
+    private String match(boolean end) {
+        final int len = markup.length();
+        final int start = end ? 2 : 1;
+        if (len < start + 1 || (markup.charAt(1) == '/') != end) {
+            return null;
+        }
+        for (String name : elements) {
+            if (matchName(name, start, len)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private boolean matchName(String name, int start, int len) {
+        final int n = name.length();
+        if (len < start + n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (markup.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        if (start + n < len) {
+            final char next = markup.charAt(start + n);
+            return next == '>' || next == '/' || Character.isWhitespace(next);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package tbx2rdf.utils;
+
+import java.io.IOException;
+import org.xml.sax.InputSource;
+
+/**
+ * A source of termEntry fragments, each of them ready to be parsed as a standalone XML document.
+ * A source is read by a single thread.
+ */
+public interface TermEntrySource {
+
+    /**
+     * Reads the next termEntry
+     * @return The fragment, or null if there are no more entries
+     */
+    public InputSource nextEntry() throws IOException;
+
+    /**
+     * Position in the input after the last entry read, from which the reading can be resumed.
+     * Its unit depends on the source.
+     */
+    public long getOffset();
+
+    /**
+     * Number of entries that were dropped because they were not closed
+     */
+    public long getMalformed();
+}
@@ -0,0 +1,297 @@
+package tbx2rdf.utils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.jena.rdf.model.Model;
+
+/**
+ * Mints the identifiers of the elements which have no id attribute, so that the same input always gives
+ * the same URIs.
+ *
+ * The identifiers are minted within the scope of a termEntry (or of the header), opened with begin() on
+ * the thread converting it: the n-th element of a type minted in the scope gets a 128-bit hash of the key
+ * of the scope, its type and n. Since the elements of an entry are converted in document order, the
+ * identifiers depend neither on the other entries nor on the number of threads. Outside of any scope,
+ * the identifiers are numbered per thread.
+ *
+ * The identifiers follow a template, by default {type}-{hash}, where
+ * {type} is the class of the element, {parent} the key of the scope, {index} n and {hash} the hash,
+ * written as a UUID. The template must contain {hash}.
+ */
+public class URIMinter {
+
+    public static final String DEFAULT_TEMPLATE = "{type}-{hash}";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String[] TOKENS = {"{type}", "{parent}", "{index}", "{hash}"};
+
+    private static volatile List<Object> template = parse(DEFAULT_TEMPLATE);
+    private static volatile String templateString = DEFAULT_TEMPLATE;
+
+    private static final ThreadLocal<Scope> scopes = new ThreadLocal<Scope>();
+
+    ///Scope of the elements minted outside of any entry
+    private static final ThreadLocal<Scope> defaultScopes = new ThreadLocal<Scope>() {
+        @Override
+        protected Scope initialValue() {
+            return new Scope(null, "");
+        }
+    };
+
+    /**
+     * Sets the template of the identifiers, for every thread
+     * @param template The template, with {type}, {parent}, {index} and {hash}
+     * @throws IllegalArgumentException If the template has unknown tokens or no {hash}
+     */
+    public static void setTemplate(String template) {
+        URIMinter.template = parse(template);
+        templateString = template;
+    }
+
+    public static String getTemplate() {
+        return templateString;
+    }
+
+    /**
+     * Opens the scope of an entry on the current thread
+     * @param model The model where the resources of the entry are created. Its empty prefix must not
+     * change until the scope is closed.
+     * @param key The key of the entry: its id, or anything else which identifies it
+     */
+    public static void begin(Model model, String key) {
+        scopes.set(new Scope(model.getNsPrefixURI(""), key));
+    }
+
+    /**
+     * Closes the scope of the current thread
+     */
+    public static void end() {
+        scopes.remove();
+    }
+
+    /**
+     * Mints the identifier of the next element of a type in the current scope
+     * @param type The type of the element
+     * @return The identifier
+     */
+    public static String mint(String type) {
+        Scope scope = scopes.get();
+        if (scope == null) {
+            scope = defaultScopes.get();
+        }
+        int[] count = scope.counts.get(type);
+        if (count == null) {
+            count = new int[1];
+            scope.counts.put(type, count);
+        }
+        final int index = count[0]++;
+        return format(type, scope.key, String.valueOf(index), hash(scope.key + '\u0000' + type + '\u0000' + index));
+    }
+
+    /**
+     * Mints the identifier of an element from its content, whatever the scope
+     * @param type The type of the element
+     * @param content The content, which identifies the element
+     * @return The identifier
+     */
+    public static String mint(String type, String content) {
+        return format(type, "", "", hash(type + '\u0000' + content));
+    }
+
+    /**
+     * The URI of an identifier in the namespace of a model, as model.expandPrefix(":" + id) but without
+     * looking the prefix up again within a scope
+     */
+    public static String expand(Model model, String id) {
+        final Scope scope = scopes.get();
+        final String namespace = scope != null ? scope.namespace : model.getNsPrefixURI("");
+        return namespace == null ? ":" + id : namespace + id;
+    }
+
+    /**
+     * The 128-bit MurmurHash3 (x64 variant, seed 0) of the UTF-8 bytes of a string, written as a UUID
+     */
+    public static String hash(String s) {
+        final long[] h = murmur3(s.getBytes(UTF8));
+        return new UUID(h[0], h[1]).toString();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    private static String format(String type, String parent, String index, String hash) {
+        final StringBuilder sb = new StringBuilder(type.length() + 40);
+        for (Object part : template) {
+            if (part instanceof Integer) {
+                switch ((Integer) part) {
+                    case 0:
+                        sb.append(type);
+                        break;
+                    case 1:
+                        sb.append(parent);
+                        break;
+                    case 2:
+                        sb.append(index);
+                        break;
+                    default:
+                        sb.append(hash);
+                }
+            } else {
+                sb.append((String) part);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Splits a template into literal strings and the indexes of its tokens in TOKENS
+     */
+    private static List<Object> parse(String template) {
+        final List<Object> parts = new ArrayList<Object>();
+        boolean hash = false;
+        int from = 0;
+        int open;
+        while ((open = template.indexOf('{', from)) >= 0) {
+            final int close = template.indexOf('}', open);
+            final String token = close < 0 ? template.substring(open) : template.substring(open, close + 1);
+            int index = -1;
+            for (int i = 0; i < TOKENS.length; i++) {
+                if (TOKENS[i].equals(token)) {
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown token " + token + " in the URI template " + template);
+            }
+            hash |= index == 3;
+            if (open > from) {
+                parts.add(template.substring(from, open));
+            }
+            parts.add(index);
+            from = close + 1;
+        }
+        if (from < template.length()) {
+            parts.add(template.substring(from));
+        }
+        if (!hash) {
+            throw new IllegalArgumentException("The URI template " + template + " has no {hash}");
+        }
+        return parts;
+    }
+
+    /**
+     * MurmurHash3 x64 128 of some bytes. The cases of the tail fall through on purpose, as in the reference implementation.
+     */
+    @SuppressWarnings("fallthrough")
+    private static long[] murmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        final int blocks = data.length / 16;
+        long h1 = 0;
+        long h2 = 0;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        final int tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        switch (data.length & 15) {
+            case 15:
+                k2 ^= (data[tail + 14] & 0xffL) << 48;
+            case 14:
+                k2 ^= (data[tail + 13] & 0xffL) << 40;
+            case 13:
+                k2 ^= (data[tail + 12] & 0xffL) << 32;
+            case 12:
+                k2 ^= (data[tail + 11] & 0xffL) << 24;
+            case 11:
+                k2 ^= (data[tail + 10] & 0xffL) << 16;
+            case 10:
+                k2 ^= (data[tail + 9] & 0xffL) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xffL;
+                k2 *= c2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= c1;
+                h2 ^= k2;
+            case 8:
+                k1 ^= (data[tail + 7] & 0xffL) << 56;
+            case 7:
+                k1 ^= (data[tail + 6] & 0xffL) << 48;
+            case 6:
+                k1 ^= (data[tail + 5] & 0xffL) << 40;
+            case 5:
+                k1 ^= (data[tail + 4] & 0xffL) << 32;
+            case 4:
+                k1 ^= (data[tail + 3] & 0xffL) << 24;
+            case 3:
+                k1 ^= (data[tail + 2] & 0xffL) << 16;
+            case 2:
+                k1 ^= (data[tail + 1] & 0xffL) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xffL;
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                h1 ^= k1;
+            default:
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long getLong(byte[] b, int i) {
+        return (b[i] & 0xffL) | (b[i + 1] & 0xffL) << 8 | (b[i + 2] & 0xffL) << 16 | (b[i + 3] & 0xffL) << 24
+                | (b[i + 4] & 0xffL) << 32 | (b[i + 5] & 0xffL) << 40 | (b[i + 6] & 0xffL) << 48 | (b[i + 7] & 0xffL) << 56;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * The elements minted for an entry
+     */
+    private static class Scope {
+
+        final String namespace;
+        final String key;
+        final Map<String, int[]> counts = new HashMap<String, int[]>();
+
+        Scope(String namespace, String key) {
+            this.namespace = namespace;
+            this.key = key;
+        }
+    }
+}
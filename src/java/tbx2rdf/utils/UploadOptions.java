@@ -0,0 +1,55 @@
+package tbx2rdf.utils;
+
+/**
+ * Options of the upload of triples to a SPARQL endpoint
+ */
+public class UploadOptions {
+
+    ///SPARQL 1.1 Update endpoint, such as http://localhost:8890/sparql-auth for Virtuoso
+    public String updateEndpoint = null;
+
+    ///Graph Store Protocol endpoint, such as http://localhost:3030/ds/data for Fuseki. If set, the triples are posted to it instead of being inserted with SPARQL Update.
+    public String gspEndpoint = null;
+
+    ///Graph where the triples are added, null for the default graph
+    public String graph = null;
+
+    ///User of the endpoint, null if it does not require authentication
+    public String user = null;
+
+    ///Password of the user
+    public String password = null;
+
+    ///Number of batches uploaded at the same time, each one by a pooled connection
+    public int threads = 4;
+
+    ///Size of the first batches, in characters of N-Triples
+    public int batchSize = 256 * 1024;
+
+    ///Smallest size of the batches
+    public int minBatchSize = 16 * 1024;
+
+    ///Largest size of the batches
+    public int maxBatchSize = 8 * 1024 * 1024;
+
+    ///Time in milliseconds that a request should take: the batches grow while the requests are faster and shrink when they are slower
+    public long targetMillis = 2000;
+
+    ///Number of times a batch is sent again when the endpoint is unavailable
+    public int retries = 5;
+
+    ///Milliseconds before the first retry, doubled at every retry
+    public long backoffMillis = 1000;
+
+    ///Timeout in milliseconds of the connections and of the responses
+    public int timeoutMillis = 120000;
+
+    ///File where the triples rejected by the endpoint are written, null to only log them
+    public String rejected = null;
+
+    ///Largest fraction of the triples which may be refused by the endpoint before the upload stops, 1 to never stop
+    public double maxRejectedRatio = 0.1;
+
+    ///Number of triples refused in a row with a server error (5xx) before the upload stops, 0 to never stop
+    public int maxServerErrors = 50;
+}
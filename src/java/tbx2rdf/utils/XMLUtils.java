@@ -1,11 +1,18 @@
 package tbx2rdf.utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
 import tbx2rdf.TBXFormatException;
 
 /**
@@ -13,6 +20,48 @@ import tbx2rdf.TBXFormatException;
  * @author Victor
  */
 public class XMLUtils {
+
+    /**
+     * Entity resolver that ignores the DTDs, so that they are neither downloaded nor required to be present
+     */
+    public static final EntityResolver IGNORE_DTD = new EntityResolver() {
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+            if (systemId != null && systemId.endsWith(".dtd")) {
+                return new InputSource(new StringReader(""));
+            } else {
+                return null;
+            }
+        }
+    };
+
+    private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    ///One parser per thread, as DocumentBuilders are not thread-safe
+    private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            synchronized (factory) {
+                try {
+                    return factory.newDocumentBuilder();
+                } catch (ParserConfigurationException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    };
+
+    /**
+     * Gets a DOM parser for the current thread, ignoring DTDs.
+     * The parser is created once per thread and reset every time it is obtained, so it must not be
+     * kept after parsing the document.
+     */
+    public static DocumentBuilder getDocumentBuilder() {
+        final DocumentBuilder builder = builders.get();
+        builder.reset();
+        builder.setEntityResolver(IGNORE_DTD);
+        return builder;
+    }
     
     /**
      * Gets the value of an XML attribute
@@ -45,29 +94,84 @@ public class XMLUtils {
     }
  
     /**
-     * Returns the first child of a node
+     * Returns the first descendant of a node with a given tag name, in document order, as
+     * getElementsByTagName(name).item(0) but without going through the rest of the subtree
      */
     public static Element firstChild(String name, Element node) {
-        final NodeList nl = node.getElementsByTagName(name);
-        if (nl.getLength() > 0) {
-            return (Element) nl.item(0);
-        } else {
-            throw new TBXFormatException("Expected child named " + name);
+        Node n = node.getFirstChild();
+        while (n != null) {
+            if (n.getNodeType() == Node.ELEMENT_NODE && (name.equals("*") || ((Element) n).getTagName().equals(name))) {
+                return (Element) n;
+            }
+            //Next node in document order within the subtree
+            if (n.getFirstChild() != null) {
+                n = n.getFirstChild();
+            } else {
+                while (n != node && n.getNextSibling() == null) {
+                    n = n.getParentNode();
+                }
+                n = n == node ? null : n.getNextSibling();
+            }
         }
+        throw new TBXFormatException("Expected child named " + name);
     }
-    
+
     /**
-     * Returns the children element of an XML node
+     * Returns the first child element of a node, or null if it has none
      */
-    public static Iterable<Element> children(Node n) {
-        final List<Element> e = new ArrayList<Element>();
-        final NodeList ns = n.getChildNodes();
-        for (int i = 0; i < ns.getLength(); i++) {
-            if (ns.item(i) instanceof Element) {
-                e.add((Element) ns.item(i));
+    public static Element firstChildElement(Node n) {
+        return nextElement(n.getFirstChild());
+    }
+
+    /**
+     * Returns the next sibling element of an element, or null if it is the last one
+     */
+    public static Element nextSiblingElement(Element e) {
+        return nextElement(e.getNextSibling());
+    }
+
+    /**
+     * Returns the children element of an XML node, found as they are iterated
+     */
+    public static Iterable<Element> children(final Node n) {
+        return new Iterable<Element>() {
+            @Override
+            public Iterator<Element> iterator() {
+                return new Iterator<Element>() {
+                    private Element next = firstChildElement(n);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Element next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        final Element e = next;
+                        next = nextSiblingElement(e);
+                        return e;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
             }
+        };
+    }
+
+    /**
+     * The first element among a node and its following siblings
+     */
+    private static Element nextElement(Node n) {
+        while (n != null && n.getNodeType() != Node.ELEMENT_NODE) {
+            n = n.getNextSibling();
         }
-        return e;
-    }    
-    
+        return (Element) n;
+    }
+
 }
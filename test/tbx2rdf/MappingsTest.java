@@ -0,0 +1,82 @@
+package tbx2rdf;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the lookup of the mappings
+ */
+public class MappingsTest {
+
+	@Test
+	public void testLookup() throws Exception {
+		final Mappings mappings = Mappings.readInMappings("mappings.default");
+		final Mapping admin = mappings.getMapping("admin", "type", "entrySource");
+		Assert.assertTrue(admin instanceof DatatypePropertyMapping);
+		Assert.assertEquals("http://tbx2rdf.lider-project.eu/tbx#entrySource", ((DatatypePropertyMapping) admin).getProperty().getURI());
+		Assert.assertNull(mappings.getMapping("admin", "type", "unknown"));
+		Assert.assertNull(mappings.getMapping("descrip", "type", "entrySource"));
+
+		//The individuals are declared after the property
+		final ObjectPropertyMapping status = (ObjectPropertyMapping) mappings.getMapping("admin", "type", "elementWorkingStatus");
+		Assert.assertEquals("http://tbx2rdf.lider-project.eu/tbx#workingElement", status.getMapping("workingElement").getResource().getURI());
+
+		mappings.addMapping("admin", "type", "unknown", new DatatypePropertyMapping("http://example.org/unknown", null));
+		Assert.assertEquals("http://example.org/unknown", mappings.getMapping("admin", "type", "unknown").getURL());
+		Assert.assertSame(admin, mappings.getMapping("admin", "type", "entrySource"));
+	}
+
+	@Test
+	public void testExceptionMapping() throws Exception {
+		final Mappings mappings = Mappings.readInMappings("mappings.default");
+		final ExceptionMapping subjectField = (ExceptionMapping) mappings.getMapping("descrip", "type", "subjectField");
+		Assert.assertEquals("subjectField", subjectField.getTransformer().getName());
+
+		final Model model = ModelFactory.createDefaultModel();
+		final Resource entry = model.createResource("http://example.org/entry");
+		subjectField.getTransformer().toRDF(model, entry, "406");
+		final Resource field = entry.getPropertyResourceValue(tbx2rdf.vocab.TBX.subjectField);
+		Assert.assertEquals("Political framework", field.getProperty(RDFS.label).getString());
+
+		try {
+			new ExceptionMapping("noSuchTransformer", "");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testTransformerClassNames() throws Exception {
+		final String transformer = tbx2rdf.datasets.iate.SubjectFieldTransformer.class.getName();
+		final String line = "descrip\ttype\tsubjectField\t<" + transformer + ">\tEX\n";
+		//The mappings which are not read from a file, as those of the web service, only name registered transformers
+		try {
+			Mappings.readInMappings(new java.io.StringReader(line));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		final Mappings mappings = Mappings.readInMappings(new java.io.StringReader(line), true);
+		Assert.assertEquals("subjectField", ((ExceptionMapping) mappings.getMapping("descrip", "type", "subjectField")).getTransformer().getName());
+
+		//A class which is not a transformer is neither initialized nor created
+		try {
+			ExceptionMapping.getTransformer(NotATransformer.class.getName(), true);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		Assert.assertFalse(initialized);
+	}
+
+	private static boolean initialized = false;
+
+	static class NotATransformer {
+
+		static {
+			initialized = true;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package tbx2rdf;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the choice of the output formats
+ */
+public class OutputFormatTest {
+
+	private static final List<OutputFormat> STREAMED = Arrays.asList(OutputFormat.NTRIPLES, OutputFormat.NQUADS, OutputFormat.TURTLE);
+
+	@Test
+	public void testForName() {
+		Assert.assertEquals(OutputFormat.TURTLE, OutputFormat.forName("turtle"));
+		Assert.assertEquals(OutputFormat.TURTLE_PRETTY, OutputFormat.forName(" Turtle-Pretty "));
+		try {
+			OutputFormat.forName("n3");
+			Assert.fail();
+		} catch (IllegalArgumentException x) {
+		}
+	}
+
+	@Test
+	public void testNegotiate() {
+		Assert.assertEquals(OutputFormat.NTRIPLES, OutputFormat.negotiate(null, STREAMED));
+		Assert.assertEquals(OutputFormat.NTRIPLES, OutputFormat.negotiate("*/*", STREAMED));
+		Assert.assertEquals(OutputFormat.TURTLE, OutputFormat.negotiate("text/turtle", STREAMED));
+		Assert.assertEquals(OutputFormat.NQUADS, OutputFormat.negotiate("text/turtle;q=0.5, application/n-quads", STREAMED));
+		Assert.assertEquals(OutputFormat.TURTLE, OutputFormat.negotiate("application/rdf+xml, text/*;q=0.8", STREAMED));
+		Assert.assertNull(OutputFormat.negotiate("application/rdf+xml", STREAMED));
+		Assert.assertNull(OutputFormat.negotiate("text/turtle;q=0", STREAMED));
+	}
+}
@@ -0,0 +1,88 @@
+package tbx2rdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import tbx2rdf.TBX2RDF_Converter.ConvertedEntry;
+import tbx2rdf.utils.TermEntrySource;
+
+/**
+ * Tests the failures of the threads of the parallel conversion
+ */
+public class TermEntryPipelineTest {
+
+	@Test(timeout = 30000)
+	public void testErrorOfAWorker() throws Exception {
+		//An Error while converting an entry must stop the conversion instead of leaving the writer waiting
+		final TBX2RDF_Converter converter = new TBX2RDF_Converter() {
+			@Override
+			ConvertedEntry convertTermEntry(InputSource xml, Mappings mappings, String namespace) {
+				throw new StackOverflowError();
+			}
+		};
+		final TermEntryPipeline pipeline = new TermEntryPipeline(converter, new Mappings(), "http://example.org/", null, 4, true);
+		try {
+			pipeline.run(Collections.<TermEntrySource>singletonList(new Entries(1000, null)), new ByteArrayOutputStream());
+			Assert.fail("The error of the worker was not reported");
+		} catch (StackOverflowError x) {
+			//Expected
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testErrorOfAReader() throws Exception {
+		final TBX2RDF_Converter converter = new TBX2RDF_Converter() {
+			@Override
+			ConvertedEntry convertTermEntry(InputSource xml, Mappings mappings, String namespace) {
+				return new ConvertedEntry();
+			}
+		};
+		final TermEntryPipeline pipeline = new TermEntryPipeline(converter, new Mappings(), "http://example.org/", null, 4, false);
+		try {
+			pipeline.run(Collections.<TermEntrySource>singletonList(new Entries(10, new OutOfMemoryError())), new ByteArrayOutputStream());
+			Assert.fail("The error of the reader was not reported");
+		} catch (OutOfMemoryError x) {
+			//Expected
+		}
+	}
+
+	/**
+	 * A number of empty entries, followed by an error if there is one
+	 */
+	private static class Entries implements TermEntrySource {
+
+		private int left;
+		private final Error error;
+
+		Entries(int entries, Error error) {
+			this.left = entries;
+			this.error = error;
+		}
+
+		@Override
+		public InputSource nextEntry() throws IOException {
+			if (left == 0) {
+				if (error != null) {
+					throw error;
+				}
+				return null;
+			}
+			left--;
+			return new InputSource(new StringReader("<termEntry/>"));
+		}
+
+		@Override
+		public long getOffset() {
+			return 0;
+		}
+
+		@Override
+		public long getMalformed() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package tbx2rdf.datasets.lexvo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the Lexvo resources of the language codes
+ */
+public class LexvoManagerTest {
+
+	@Test
+	public void testLanguageTags() {
+		final LexvoManager mgr = new LexvoManager();
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/eng", mgr.getLexvoFromISO2("en").getURI());
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/eng", mgr.getLexvoFromISO2("en-GB").getURI());
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/eng", mgr.getLexvoFromISO2("EN").getURI());
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/por", mgr.getLexvoFromISO2("pt_BR").getURI());
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/spa", mgr.getLexvoFromISO2("spa").getURI());
+		Assert.assertEquals("http://www.lexvo.org/id/iso639-3/unk", mgr.getLexvoFromISO2("x-unknown").getURI());
+		Assert.assertSame(mgr.getLexvoFromISO2("en"), mgr.getLexvoFromISO2("en"));
+	}
+}
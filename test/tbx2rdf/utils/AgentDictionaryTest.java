@@ -0,0 +1,89 @@
+package tbx2rdf.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the dictionary of the agents described by a conversion
+ */
+public class AgentDictionaryTest {
+
+	@Test
+	public void testLeastRecentlyUsedAreForgotten() {
+		final AgentDictionary agents = new AgentDictionary(2);
+		Assert.assertTrue(agents.add("a"));
+		Assert.assertTrue(agents.add("b"));
+		Assert.assertFalse(agents.add("a"));
+		Assert.assertTrue(agents.add("c"));
+		Assert.assertEquals(2, agents.size());
+		Assert.assertTrue(agents.contains("a"));
+		Assert.assertFalse(agents.contains("b"));
+		Assert.assertTrue(agents.add("b"));
+
+		final AgentDictionary none = new AgentDictionary(0);
+		Assert.assertTrue(none.add("a"));
+		Assert.assertTrue(none.add("a"));
+	}
+
+	@Test
+	public void testAgentsOfAnEntryAreRememberedOnceWritten() {
+		final AgentDictionary agents = new AgentDictionary(10);
+		agents.begin();
+		Assert.assertTrue(agents.describe("a"));
+		//The entry fails: its agents are not remembered
+		agents.end();
+		Assert.assertFalse(agents.contains("a"));
+
+		agents.begin();
+		Assert.assertTrue(agents.describe("a"));
+		agents.addAll(agents.end());
+		Assert.assertTrue(agents.contains("a"));
+		agents.begin();
+		Assert.assertFalse(agents.describe("a"));
+		agents.end();
+
+		//Outside of an entry the agents are remembered at once
+		Assert.assertTrue(agents.describe("b"));
+		Assert.assertFalse(agents.describe("b"));
+	}
+
+	@Test
+	public void testForgottenAgentsKeepTheirURI() {
+		final Model model = ModelFactory.createDefaultModel();
+		model.setNsPrefix("", "http://example.org/");
+		final String uri = AgentDictionary.getURI(model, "Jane Doe");
+		Assert.assertTrue(uri.startsWith("http://example.org/Agent-"));
+		Assert.assertEquals(uri, AgentDictionary.getURI(model, "Jane Doe"));
+		Assert.assertFalse(uri.equals(AgentDictionary.getURI(model, "John Doe")));
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		final AgentDictionary agents = new AgentDictionary(100000);
+		final AtomicInteger added = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						if (agents.add("agent" + i)) {
+							added.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		//Each agent is described by only one thread
+		Assert.assertEquals(10000, added.get());
+		Assert.assertEquals(10000, agents.size());
+	}
+}
@@ -0,0 +1,56 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the reading ahead of a stream on its own thread
+ */
+public class BackgroundInputStreamTest {
+
+	@Test
+	public void testRead() throws Exception {
+		final byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		final InputStream in = new BackgroundInputStream(new ByteArrayInputStream(data), 1000, 4, "test");
+		final byte[] read = new byte[data.length];
+		int n = 0;
+		int r;
+		while ((r = in.read(read, n, Math.min(777, read.length - n))) > 0) {
+			n += r;
+		}
+		Assert.assertEquals(data.length, n);
+		Assert.assertEquals(-1, in.read());
+		Assert.assertArrayEquals(data, read);
+		in.close();
+	}
+
+	@Test(timeout = 30000)
+	public void testErrorOfTheStream() throws Exception {
+		//An Error of the stream read ahead must reach the reader instead of leaving it waiting
+		final InputStream in = new BackgroundInputStream(new InputStream() {
+			@Override
+			public int read() {
+				throw new StackOverflowError();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				throw new StackOverflowError();
+			}
+		}, "test");
+		try {
+			in.read();
+			Assert.fail("The error of the stream was not reported");
+		} catch (IOException x) {
+			Assert.assertTrue(x.getCause() instanceof StackOverflowError);
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Test;
+import tbx2rdf.OutputFormat;
+import tbx2rdf.vocab.ONTOLEX;
+
+/**
+ * Tests the serialization of the entries one at a time
+ */
+public class EntryEmitterTest {
+
+	@Test
+	public void testTurtleEntriesAfterThePrefixes() throws Exception {
+		final EntryEmitter emitter = new EntryEmitter(OutputFormat.TURTLE);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(emitter.prefixes("http://example.org/"));
+		final Model expected = ModelFactory.createDefaultModel();
+		for (String id : new String[]{"c1", "c2"}) {
+			final Model model = emitter.begin("http://example.org/");
+			final Resource concept = model.createResource("http://example.org/" + id);
+			concept.addProperty(RDF.type, ONTOLEX.Concept);
+			concept.addProperty(RDFS.label, "Concept \"" + id + "\"", "en");
+			out.write(emitter.end());
+			expected.createResource("http://example.org/" + id).addProperty(RDF.type, ONTOLEX.Concept)
+					.addProperty(RDFS.label, "Concept \"" + id + "\"", "en");
+		}
+		final String turtle = out.toString("UTF-8");
+		Assert.assertTrue(turtle.contains(":c2 rdf:type ontolex:LexicalConcept"));
+		final Model parsed = ModelFactory.createDefaultModel();
+		RDFDataMgr.read(parsed, new ByteArrayInputStream(out.toByteArray()), Lang.TURTLE);
+		Assert.assertTrue(parsed.isIsomorphicWith(expected));
+	}
+
+	@Test
+	public void testNTriplesHaveNoPrefixes() {
+		final EntryEmitter emitter = new EntryEmitter(OutputFormat.NTRIPLES);
+		Assert.assertEquals(0, emitter.prefixes("http://example.org/").length);
+		emitter.begin("http://example.org/").createResource("http://example.org/c1").addProperty(RDF.type, ONTOLEX.Concept);
+		Assert.assertEquals("<http://example.org/c1> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://www.w3.org/ns/lemon/ontolex#LexicalConcept> .\n",
+				new String(emitter.end()));
+	}
+
+	@Test
+	public void testThriftEntriesAfterThePrefixTable() throws Exception {
+		final EntryEmitter emitter = new EntryEmitter(OutputFormat.THRIFT);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(emitter.prefixes("http://example.org/"));
+		final Model expected = ModelFactory.createDefaultModel();
+		for (String id : new String[]{"c1", "c2"}) {
+			final Model model = emitter.begin("http://example.org/");
+			model.createResource("http://example.org/" + id).addProperty(RDF.type, ONTOLEX.Concept).addLiteral(RDFS.label, 42);
+			out.write(emitter.end());
+			expected.createResource("http://example.org/" + id).addProperty(RDF.type, ONTOLEX.Concept).addLiteral(RDFS.label, 42);
+		}
+		final Model parsed = ModelFactory.createDefaultModel();
+		RDFDataMgr.read(parsed, new ByteArrayInputStream(out.toByteArray()), Lang.RDFTHRIFT);
+		Assert.assertTrue(parsed.isIsomorphicWith(expected));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPrettyFormatsAreNotWrittenByEntry() {
+		new EntryEmitter(OutputFormat.TURTLE_PRETTY);
+	}
+}
@@ -0,0 +1,71 @@
+package tbx2rdf.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.rdfhdt.hdt.hdt.HDT;
+import org.rdfhdt.hdt.hdt.HDTManager;
+
+/**
+ * Tests the generation of HDT files from the N-Triples of a conversion
+ */
+public class HDTOutputStreamTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tbx2rdf-hdt").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testGenerate() throws Exception {
+		final File file = new File(directory, "out.hdt");
+		final HDTOutputStream out = new HDTOutputStream(file.getPath(), "http://example.org/", null);
+		for (int i = 0; i < 100; i++) {
+			out.write(triples(i));
+		}
+		//The triples written twice are only kept once
+		out.write(triples(0));
+		out.close();
+
+		//Only the HDT is left
+		Assert.assertArrayEquals(new File[]{file}, directory.listFiles());
+		final HDT hdt = HDTManager.mapHDT(file.getPath());
+		try {
+			Assert.assertEquals(200, hdt.getTriples().getNumberOfElements());
+			Assert.assertTrue(hdt.search("http://example.org/c7", "http://www.w3.org/2000/01/rdf-schema#label", "\"Concept 7\"@en").hasNext());
+		} finally {
+			hdt.close();
+		}
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		final File file = new File(directory, "out.hdt");
+		final File work = new File(directory, "work");
+		work.mkdir();
+		final HDTOutputStream out = new HDTOutputStream(file.getPath(), "http://example.org/", work.getPath());
+		out.write(triples(0));
+		//The conversion has failed: no HDT is written and the work files are deleted
+		out.abort();
+		out.close();
+		Assert.assertFalse(file.exists());
+		Assert.assertEquals(0, work.listFiles().length);
+	}
+
+	private static byte[] triples(int i) throws IOException {
+		return ("<http://example.org/c" + i + "> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <http://www.w3.org/ns/lemon/ontolex#LexicalConcept> .\n"
+				+ "<http://example.org/c" + i + "> <http://www.w3.org/2000/01/rdf-schema#label> \"Concept " + i + "\"@en .\n").getBytes("UTF-8");
+	}
+}
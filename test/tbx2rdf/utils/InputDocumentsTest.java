@@ -0,0 +1,78 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the reading of compressed inputs
+ */
+public class InputDocumentsTest {
+
+	@Test
+	public void testGzip() throws Exception {
+		final File file = File.createTempFile("tbx", ".gz");
+		file.deleteOnExit();
+		final StringBuilder text = new StringBuilder("<martif>");
+		for (int i = 0; i < 100000; i++) {
+			text.append("<termEntry id=\"").append(i).append("\"/>");
+		}
+		text.append("</martif>");
+		final OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+		out.write(text.toString().getBytes("UTF-8"));
+		out.close();
+
+		final InputDocuments documents = new InputDocuments(file);
+		try {
+			Assert.assertEquals(InputDocuments.Format.GZIP, documents.getFormat());
+			Assert.assertEquals(text.toString(), read(documents.next()));
+			Assert.assertNull(documents.next());
+		} finally {
+			documents.close();
+		}
+	}
+
+	@Test
+	public void testZipWithSeveralDocuments() throws Exception {
+		final File file = File.createTempFile("tbx", ".zip");
+		file.deleteOnExit();
+		final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		out.putNextEntry(new ZipEntry("a.tbx"));
+		out.write("<martif>a</martif>".getBytes("UTF-8"));
+		out.putNextEntry(new ZipEntry("README.txt"));
+		out.write("not a TBX file".getBytes("UTF-8"));
+		out.putNextEntry(new ZipEntry("dir/b.xml"));
+		out.write("<martif>b</martif>".getBytes("UTF-8"));
+		out.close();
+
+		final InputDocuments documents = new InputDocuments(file);
+		try {
+			Assert.assertEquals(InputDocuments.Format.ZIP, documents.getFormat());
+			//The first document is not read to the end
+			Assert.assertEquals('<', documents.next().read());
+			Assert.assertEquals("a.tbx", documents.getName());
+			Assert.assertEquals("<martif>b</martif>", read(documents.next()));
+			Assert.assertEquals("dir/b.xml", documents.getName());
+			Assert.assertNull(documents.next());
+		} finally {
+			documents.close();
+		}
+	}
+
+	private static String read(InputStream in) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buf = new byte[4096];
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			bytes.write(buf, 0, n);
+		}
+		return bytes.toString("UTF-8");
+	}
+}
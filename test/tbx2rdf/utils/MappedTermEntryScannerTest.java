@@ -0,0 +1,140 @@
+package tbx2rdf.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests the scanning of the termEntry elements of a memory-mapped file
+ */
+public class MappedTermEntryScannerTest {
+
+	private static final String TBX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<martif type=\"TBX\"><martifHeader><fileDesc/></martifHeader><text><body>\n"
+			+ "<termEntry id=\"a\"><term>árbol</term></termEntry>\n"
+			+ "<!-- <termEntry id=\"no\"> -->\n"
+			+ "<termEntry id=\"b\"><note><![CDATA[</termEntry>]]></note></termEntry>\n"
+			+ "<termEntry id=\"c\"/>\n"
+			+ "<termEntry id=\"d\"><term>d</term></termEntry>\n"
+			+ "</body></text></martif>\n";
+
+	@Test
+	public void testPrologue() throws Exception {
+		final MappedTermEntryScanner scanner = new MappedTermEntryScanner(write(TBX));
+		try {
+			final String prologue = scanner.getPrologue();
+			Assert.assertTrue(prologue.contains("<martifHeader><fileDesc/></martifHeader>"));
+			Assert.assertFalse(prologue.contains("termEntry"));
+		} finally {
+			scanner.close();
+		}
+	}
+
+	@Test
+	public void testEveryEntryInExactlyOneRange() throws Exception {
+		final File file = write(TBX);
+		for (int parts = 1; parts <= 12; parts++) {
+			final MappedTermEntryScanner scanner = new MappedTermEntryScanner(file);
+			try {
+				final List<String> entries = new ArrayList<String>();
+				for (TermEntrySource range : scanner.split(parts)) {
+					InputSource source;
+					while ((source = range.nextEntry()) != null) {
+						entries.add(read(source));
+					}
+				}
+				Assert.assertEquals(4, entries.size());
+				Assert.assertEquals("<termEntry id=\"a\"><term>árbol</term></termEntry>", entries.get(0));
+				Assert.assertEquals("<termEntry id=\"b\"><note><![CDATA[</termEntry>]]></note></termEntry>", entries.get(1));
+				Assert.assertEquals("<termEntry id=\"c\"/>", entries.get(2));
+				Assert.assertEquals("<termEntry id=\"d\"><term>d</term></termEntry>", entries.get(3));
+			} finally {
+				scanner.close();
+			}
+		}
+	}
+
+	@Test
+	public void testEntriesInCommentsAndCDataAreNeverSplitPoints() throws Exception {
+		//Whole entries inside comments and CDATA sections, wherever the split points would fall
+		final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?>\n<martif><text><body>\n");
+		for (int i = 0; i < 20; i++) {
+			sb.append("<!-- <termEntry id=\"c").append(i).append("\"><term>no</term></termEntry> -->\n");
+			sb.append("<termEntry id=\"e").append(i).append("\"><note><![CDATA[<termEntry id=\"x\"></termEntry>]]></note></termEntry>\n");
+			sb.append("<?pi <termEntry id=\"p\"/> ?>\n");
+		}
+		final File file = write(sb.append("</body></text></martif>\n").toString());
+		for (int parts = 1; parts <= 60; parts++) {
+			final MappedTermEntryScanner scanner = new MappedTermEntryScanner(file);
+			try {
+				final List<String> entries = new ArrayList<String>();
+				for (TermEntrySource range : scanner.split(parts)) {
+					InputSource source;
+					while ((source = range.nextEntry()) != null) {
+						entries.add(read(source));
+					}
+					Assert.assertEquals(0, range.getMalformed());
+				}
+				Assert.assertEquals(20, entries.size());
+				for (int i = 0; i < 20; i++) {
+					Assert.assertTrue(entries.get(i), entries.get(i).startsWith("<termEntry id=\"e" + i + "\">"));
+				}
+			} finally {
+				scanner.close();
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownEncoding() throws Exception {
+		for (String encoding : new String[]{"x-no-such-encoding", "-illegal"}) {
+			try {
+				new MappedTermEntryScanner(write("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?><martif/>")).close();
+				Assert.fail(encoding);
+			} catch (UnsupportedEncodingException e) {
+				//The file is decoded as text instead
+			}
+		}
+	}
+
+	@Test
+	public void testEntryLongerThanTheWindowIsSkipped() throws Exception {
+		final StringBuilder sb = new StringBuilder("<martif><text><body>\n<termEntry id=\"a\"/>\n<termEntry id=\"long\"><note>");
+		for (int i = 0; i < 100; i++) {
+			sb.append("<!-- x -->");
+		}
+		final File file = write(sb.append("</note></termEntry>\n<termEntry id=\"b\"/>\n</body></text></martif>\n").toString());
+		final MappedTermEntryScanner scanner = new MappedTermEntryScanner(file, 64);
+		try {
+			final TermEntrySource range = scanner.split(1).get(0);
+			Assert.assertEquals("<termEntry id=\"a\"/>", read(range.nextEntry()));
+			Assert.assertEquals("<termEntry id=\"b\"/>", read(range.nextEntry()));
+			Assert.assertNull(range.nextEntry());
+			Assert.assertEquals(1, range.getMalformed());
+		} finally {
+			scanner.close();
+		}
+	}
+
+	private static File write(String text) throws Exception {
+		final File file = File.createTempFile("tbx", ".tbx");
+		file.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(text.getBytes("UTF-8"));
+		out.close();
+		return file;
+	}
+
+	private static String read(InputSource source) throws Exception {
+		final InputStream in = source.getByteStream();
+		final byte[] buf = new byte[in.available()];
+		Assert.assertEquals(buf.length, Math.max(0, in.read(buf, 0, buf.length)));
+		return new String(buf, source.getEncoding());
+	}
+}
@@ -0,0 +1,121 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests the serialization of the values of the TBX elements
+ */
+public class NodeSerializerTest {
+
+	///Documents whose serialization must be the one of the transformer, see testSameAsTransformer
+	private static final String[] DOCUMENTS = {
+		//Nested mixed content
+		"<note>  a &amp; b <hi type=\"x\">  c <b> d <i>e</i> f</b> </hi> g <foreign/> h </note>",
+		"<note><hi><b><i>  deep  </i></b></hi>tail<hi/></note>",
+		//Whitespace-only text
+		"<note>   </note>",
+		"<note> \t\n <b>  </b> \n </note>",
+		"<note>\n<hi>\n\t</hi>\n<hi> x </hi>\n</note>",
+		//Comments
+		"<note><!-- a comment --> text <b><!--  inner  --></b></note>",
+		"<note> a <!----> b </note>",
+		//Processing instructions
+		"<note><?pi data?> x <b><?pi   spaced data  ?></b><?empty?></note>",
+		//\r in text and in attributes
+		"<note>a&#13;b<b>c&#13;</b><b>&#13;</b></note>",
+		"<note><hi type=\"a&#13;b&#10;c&#9;d\">x</hi></note>",
+		//C1 control characters
+		"<note>a\u0085b\u007f<b>\u0080c\u009f</b><hi type=\"\u0085\">d</hi></note>",
+		//Supplementary characters in text and CDATA
+		"<note>😀 a 𝐀<b>😀</b></note>",
+		"<note><![CDATA[😀 a 😀]]><b><![CDATA[😀😀]]></b></note>",
+		"<note><b><![CDATA[ x😀y ]]></b><hi type=\"😀\">z</hi></note>",
+		//]]> inside CDATA
+		"<note><![CDATA[a]]]]><![CDATA[>b]]><b><![CDATA[ ]]]]><![CDATA[> ]]></b></note>",
+		"<note><b><![CDATA[x]]]]><![CDATA[>]]]]><![CDATA[>y]]></b></note>",
+		//Markup characters
+		"<note>&lt;a&gt; &amp; \"q\" 'a'<hi type=\"&lt;&gt;&amp;&quot;'\">&lt;</hi></note>",
+	};
+
+	@Test
+	public void testTextInsideElementsIsTrimmed() throws Exception {
+		final Element note = parse("<note>  a &amp; b <hi type=\"x&quot;y\">  c </hi>\n <foreign/> </note>");
+		Assert.assertEquals("  a &amp; b <hi type=\"x&quot;y\">c</hi><foreign/>", NodeSerializer.toString(note.getChildNodes()));
+		Assert.assertEquals("<note>a &amp; b<hi type=\"x&quot;y\">c</hi><foreign/></note>", NodeSerializer.toString(note));
+		Assert.assertEquals("a & bc", NodeSerializer.trimmedTextContent(note));
+	}
+
+	@Test
+	public void testCData() throws Exception {
+		final Element note = parse("<note><![CDATA[ <x> ]]]]><![CDATA[> ]]><b><![CDATA[  ]]></b></note>");
+		Assert.assertEquals("<note><![CDATA[<x> ]]]]><![CDATA[>]]><b/></note>", NodeSerializer.toString(note));
+	}
+
+	@Test
+	public void testSameAsTransformer() throws Exception {
+		//The values must stay byte-identical to those written by the identity transformer after the trimming
+		for (String document : DOCUMENTS) {
+			Assert.assertEquals(document, transformerToString(parse(document)), NodeSerializer.toString(parse(document)));
+			Assert.assertEquals(document, transformerToString(parse(document).getChildNodes()), NodeSerializer.toString(parse(document).getChildNodes()));
+			for (Node child = parse(document).getFirstChild(); child != null; child = child.getNextSibling()) {
+				Assert.assertEquals(document, transformerToString(child), NodeSerializer.toString(child));
+			}
+		}
+	}
+
+	private static Element parse(String xml) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getDocumentElement();
+	}
+
+	/************* THE SERIALIZATION WITH THE TRANSFORMER, AS IT WAS IN impID ****/
+
+	private static void removeWhitespaceNode(Node node) {
+		if (node instanceof Element) {
+			final NodeList nl = node.getChildNodes();
+			for (int i = 0; i < nl.getLength(); i++) {
+				final Node n = nl.item(i);
+				if (n instanceof Element) {
+					removeWhitespaceNode(n);
+				} else if (n.getTextContent().matches("\\s+")) {
+					n.setTextContent("");
+				} else {
+					n.setTextContent(n.getTextContent().trim());
+				}
+			}
+		}
+	}
+
+	private static String transformerToString(Node node) throws Exception {
+		removeWhitespaceNode(node);
+		final StringWriter sw = new StringWriter();
+		final Transformer t = TransformerFactory.newInstance().newTransformer();
+		t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		t.setOutputProperty(OutputKeys.INDENT, "no");
+		t.transform(new DOMSource(node), new StreamResult(sw));
+		return sw.toString();
+	}
+
+	private static String transformerToString(NodeList nodes) throws Exception {
+		final StringWriter sw = new StringWriter();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			final Node n = nodes.item(i);
+			removeWhitespaceNode(n);
+			if ((n instanceof Element) || !n.getTextContent().matches("\\s*")) {
+				sw.append(transformerToString(n));
+			}
+		}
+		return sw.toString();
+	}
+}
@@ -0,0 +1,78 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the parallel gzip output
+ */
+public class ParallelGzipOutputStreamTest {
+
+	@Test
+	public void testBlocksAreOneGzipStream() throws Exception {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, 3, 1000);
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			final String line = "<http://example.org/" + i + "> <http://example.org/p> \"" + i + "\" .\n";
+			text.append(line);
+			out.write(line.getBytes("UTF-8"));
+		}
+		out.write('#');
+		text.append('#');
+		out.close();
+
+		final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buf = new byte[4096];
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			bytes.write(buf, 0, n);
+		}
+		Assert.assertEquals(text.toString(), bytes.toString("UTF-8"));
+	}
+
+	@Test(timeout = 30000)
+	public void testFailureOfTheOutput() throws Exception {
+		//An unchecked exception of the output must not leave the writer blocked on a full queue
+		final AtomicBoolean closed = new AtomicBoolean();
+		final ParallelGzipOutputStream out = new ParallelGzipOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				throw new IllegalStateException("Broken output");
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				throw new IllegalStateException("Broken output");
+			}
+
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		}, 2, 100);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				out.write(new byte[100]);
+			}
+			out.close();
+			Assert.fail("The failure of the output was not reported");
+		} catch (IOException x) {
+			Assert.assertTrue(x.getCause() instanceof IllegalStateException);
+		}
+		try {
+			out.close();
+		} catch (IOException x) {
+			//The failure is reported again if the first close was not reached
+		}
+		//The output is closed anyway
+		Assert.assertTrue(closed.get());
+	}
+}
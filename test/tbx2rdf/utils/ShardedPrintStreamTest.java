@@ -0,0 +1,54 @@
+package tbx2rdf.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the splitting of the output into shards
+ */
+public class ShardedPrintStreamTest {
+
+	@Test
+	public void testShardsEndOnEntryBoundaries() throws Exception {
+		final File dir = File.createTempFile("shards", "");
+		dir.delete();
+		dir.mkdir();
+		final String base = new File(dir, "out").getPath();
+		final ShardedPrintStream out = new ShardedPrintStream(base, 0, 5, false, 1);
+		for (int entry = 0; entry < 4; entry++) {
+			//Three triples per entry: a shard is full after two entries
+			for (int i = 0; i < 3; i++) {
+				out.print("<http://example.org/" + entry + "> <http://example.org/p> \"" + i + "\" .\n");
+			}
+			out.endOfEntry();
+		}
+		out.close();
+		Assert.assertFalse(out.checkError());
+
+		final List<String> manifest = lines(new File(out.getManifest()));
+		Assert.assertEquals(3, manifest.size());
+		Assert.assertTrue(manifest.get(1).startsWith("out-00000.nt\t6\t"));
+		Assert.assertTrue(manifest.get(2).startsWith("out-00001.nt\t6\t"));
+		Assert.assertEquals(6, lines(new File(base + "-00000.nt")).size());
+		Assert.assertEquals(6, lines(new File(base + "-00001.nt")).size());
+		//The last shard was full but empty: nothing was written after it was started
+		Assert.assertFalse(new File(base + "-00002.nt").exists());
+	}
+
+	private static List<String> lines(File file) throws Exception {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		final List<String> lines = new ArrayList<String>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+}
@@ -0,0 +1,243 @@
+package tbx2rdf.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.update.UpdateAction;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the upload to a SPARQL endpoint, against a stand-in endpoint which stores the triples in memory
+ */
+public class SparqlUploaderTest {
+
+	private static final String GRAPH = "http://example.org/graph";
+
+	private File directory;
+	private File data;
+	private HttpServer server;
+	private Dataset dataset;
+	///Number of requests the endpoint answers with 503 before accepting them
+	private AtomicInteger unavailable;
+	///Whether the endpoint answers every request with 500
+	private volatile boolean broken;
+	private AtomicInteger requests;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tbx2rdf-upload").toFile();
+		data = new File(directory, "data.nt");
+		final PrintWriter out = new PrintWriter(data, "UTF-8");
+		for (int i = 0; i < 500; i++) {
+			out.println("<http://example.org/c" + i + "> <http://www.w3.org/2000/01/rdf-schema#label> \"" + (i == 123 ? "bad" : "Concept " + i) + "\"@en .");
+		}
+		out.close();
+		dataset = DatasetFactory.create();
+		unavailable = new AtomicInteger();
+		broken = false;
+		requests = new AtomicInteger();
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.createContext("/update", new Endpoint(false));
+		server.createContext("/data", new Endpoint(true));
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testUpdate() throws Exception {
+		unavailable.set(2);
+		final UploadOptions options = options();
+		options.updateEndpoint = "http://localhost:" + server.getAddress().getPort() + "/update";
+		final SparqlUploader uploader = new SparqlUploader(options);
+		try {
+			uploader.upload(data.getPath());
+		} finally {
+			uploader.close();
+		}
+		Assert.assertEquals(499, uploader.getUploaded());
+		Assert.assertEquals(1, uploader.getRejected());
+		Assert.assertEquals(499, dataset.getNamedModel(GRAPH).size());
+		final List<String> rejected = FileUtils.readLines(new File(options.rejected), "UTF-8");
+		Assert.assertEquals(1, rejected.size());
+		Assert.assertTrue(rejected.get(0).startsWith("<http://example.org/c123>"));
+		//Each pooled connection is challenged once, not each batch
+		Assert.assertTrue(requests.get() - uploader.getRequests() <= options.threads);
+	}
+
+	@Test
+	public void testGraphStoreProtocol() throws Exception {
+		final UploadOptions options = options();
+		options.gspEndpoint = "http://localhost:" + server.getAddress().getPort() + "/data";
+		//A syntax other than N-Triples is parsed
+		final File turtle = new File(directory, "data.ttl");
+		final OutputStream out = new FileOutputStream(turtle);
+		RDFDataMgr.write(out, RDFDataMgr.loadModel(data.getPath()), Lang.TURTLE);
+		out.close();
+		final SparqlUploader uploader = new SparqlUploader(options);
+		try {
+			uploader.upload(turtle.getPath());
+		} finally {
+			uploader.close();
+		}
+		Assert.assertEquals(499, dataset.getNamedModel(GRAPH).size());
+		//The batches grow, as the endpoint is fast
+		Assert.assertEquals(options.maxBatchSize, uploader.getBatchSize());
+	}
+
+	@Test
+	public void testUnavailable() throws Exception {
+		unavailable.set(Integer.MAX_VALUE);
+		final UploadOptions options = options();
+		options.updateEndpoint = "http://localhost:" + server.getAddress().getPort() + "/update";
+		final SparqlUploader uploader = new SparqlUploader(options);
+		try {
+			uploader.upload(data.getPath());
+			Assert.fail("The upload succeeded without endpoint");
+		} catch (IOException x) {
+			Assert.assertTrue(x.getMessage().contains("unavailable"));
+		} finally {
+			uploader.close();
+		}
+		Assert.assertEquals(0, dataset.getNamedModel(GRAPH).size());
+	}
+
+	@Test
+	public void testServerErrors() throws Exception {
+		broken = true;
+		final UploadOptions options = options();
+		options.updateEndpoint = "http://localhost:" + server.getAddress().getPort() + "/update";
+		options.threads = 1;
+		options.maxServerErrors = 10;
+		final SparqlUploader uploader = new SparqlUploader(options);
+		try {
+			uploader.upload(data.getPath());
+			Assert.fail("The upload went on with a failing endpoint");
+		} catch (IOException x) {
+			Assert.assertTrue(x.getMessage().contains("in a row"));
+		} finally {
+			uploader.close();
+		}
+		//The upload stops instead of sending every triple alone
+		Assert.assertEquals(10, uploader.getRejected());
+		Assert.assertTrue(uploader.getRequests() < 100);
+	}
+
+	@Test
+	public void testTooManyRejected() throws Exception {
+		final File bad = new File(directory, "bad.nt");
+		final PrintWriter out = new PrintWriter(bad, "UTF-8");
+		for (int i = 0; i < 2000; i++) {
+			out.println("<http://example.org/c" + i + "> <http://www.w3.org/2000/01/rdf-schema#label> \"" + (i % 2 == 0 ? "bad" : "Concept " + i) + "\"@en .");
+		}
+		out.close();
+		final UploadOptions options = options();
+		options.updateEndpoint = "http://localhost:" + server.getAddress().getPort() + "/update";
+		options.threads = 1;
+		options.maxRejectedRatio = 0.2;
+		final SparqlUploader uploader = new SparqlUploader(options);
+		try {
+			uploader.upload(bad.getPath());
+			Assert.fail("The upload went on with half of the triples refused");
+		} catch (IOException x) {
+			Assert.assertTrue(x.getMessage().contains("has refused"));
+		} finally {
+			uploader.close();
+		}
+		Assert.assertEquals(100, uploader.getRejected());
+	}
+
+	private UploadOptions options() {
+		final UploadOptions options = new UploadOptions();
+		options.graph = GRAPH;
+		options.user = "user";
+		options.password = "secret";
+		options.threads = 3;
+		options.batchSize = 2000;
+		options.minBatchSize = 500;
+		options.maxBatchSize = 8000;
+		options.retries = 2;
+		options.backoffMillis = 10;
+		options.rejected = new File(directory, "rejected.nt").getPath();
+		return options;
+	}
+
+	/**
+	 * Stores the triples of SPARQL updates or of Graph Store Protocol posts, and refuses the ones with the literal "bad"
+	 */
+	private class Endpoint implements HttpHandler {
+
+		private final boolean gsp;
+
+		Endpoint(boolean gsp) {
+			this.gsp = gsp;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			requests.incrementAndGet();
+			final InputStream in = exchange.getRequestBody();
+			final String body = IOUtils.toString(in, "UTF-8");
+			in.close();
+			if (!gsp && exchange.getRequestHeaders().getFirst("Authorization") == null) {
+				exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"test\"");
+				respond(exchange, 401);
+			} else if (unavailable.getAndDecrement() > 0) {
+				respond(exchange, 503);
+			} else if (broken) {
+				respond(exchange, 500);
+			} else if (body.contains("\"bad\"")) {
+				respond(exchange, 400);
+			} else if (gsp) {
+				Assert.assertEquals("graph=" + GRAPH.replace(":", "%3A").replace("/", "%2F"), exchange.getRequestURI().getRawQuery());
+				final Model model = ModelFactory.createDefaultModel();
+				RDFDataMgr.read(model, IOUtils.toInputStream(body, "UTF-8"), Lang.NTRIPLES);
+				synchronized (dataset) {
+					dataset.getNamedModel(GRAPH).add(model);
+				}
+				respond(exchange, 204);
+			} else {
+				synchronized (dataset) {
+					UpdateAction.parseExecute(body, dataset);
+				}
+				respond(exchange, 204);
+			}
+		}
+
+		private void respond(HttpExchange exchange, int code) throws IOException {
+			if (code >= 400 && code != 401) {
+				exchange.getResponseHeaders().add("Connection", "close");
+			}
+			exchange.sendResponseHeaders(code, -1);
+			final OutputStream out = exchange.getResponseBody();
+			out.close();
+		}
+	}
+}
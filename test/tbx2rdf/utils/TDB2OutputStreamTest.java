@@ -0,0 +1,94 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tbx2rdf.OutputFormat;
+import tbx2rdf.vocab.ONTOLEX;
+
+/**
+ * Tests the bulk load of the output into TDB2
+ */
+public class TDB2OutputStreamTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tbx2rdf-tdb2").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testRowsSplitAcrossWrites() throws Exception {
+		final EntryEmitter emitter = new EntryEmitter(OutputFormat.THRIFT);
+		final ByteArrayOutputStream rdf = new ByteArrayOutputStream();
+		rdf.write(emitter.prefixes("http://example.org/"));
+		for (int i = 0; i < 100; i++) {
+			final Model model = emitter.begin("http://example.org/");
+			model.createResource("http://example.org/c" + i).addProperty(RDF.type, ONTOLEX.Concept).addProperty(RDFS.label, "Concept " + i, "en");
+			rdf.write(emitter.end());
+		}
+		final byte[] bytes = rdf.toByteArray();
+
+		//Writes which end in the middle of the rows, and batches smaller than the whole
+		final TDB2OutputStream out = new TDB2OutputStream(directory.getPath(), "basic", 7);
+		for (int i = 0; i < bytes.length; i += 13) {
+			out.write(bytes, i, Math.min(13, bytes.length - i));
+		}
+		out.close();
+
+		final Dataset dataset = TDB2Factory.connectDataset(directory.getPath());
+		dataset.begin(ReadWrite.READ);
+		try {
+			Assert.assertEquals(200, dataset.getDefaultModel().size());
+			Assert.assertEquals("http://example.org/", dataset.getDefaultModel().getNsPrefixURI(""));
+		} finally {
+			dataset.end();
+		}
+	}
+
+	@Test
+	public void testAbort() throws Exception {
+		final EntryEmitter emitter = new EntryEmitter(OutputFormat.THRIFT);
+		final TDB2OutputStream out = new TDB2OutputStream(directory.getPath(), "basic", 7);
+		out.write(emitter.prefixes("http://example.org/"));
+		for (int i = 0; i < 100; i++) {
+			final Model model = emitter.begin("http://example.org/");
+			model.createResource("http://example.org/c" + i).addProperty(RDFS.label, "Concept " + i, "en");
+			out.write(emitter.end());
+		}
+		//The conversion has failed: nothing is committed
+		out.abort();
+		out.close();
+
+		final Dataset dataset = TDB2Factory.connectDataset(directory.getPath());
+		dataset.begin(ReadWrite.READ);
+		try {
+			Assert.assertEquals(0, dataset.getDefaultModel().size());
+		} finally {
+			dataset.end();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownLoader() {
+		new TDB2OutputStream(directory.getPath(), "fastest", 10);
+	}
+}
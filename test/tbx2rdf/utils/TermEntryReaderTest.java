@@ -0,0 +1,64 @@
+package tbx2rdf.utils;
+
+import java.io.StringReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the splitting of a TBX document into termEntry fragments
+ */
+public class TermEntryReaderTest {
+
+	@Test
+	public void testEntriesOnTheSameLine() throws Exception {
+		final TermEntryReader reader = new TermEntryReader(new StringReader(
+				"<martif><text><body><termEntry id=\"a\"><langSet/></termEntry><termEntry id=\"b\"/></body></text></martif>"));
+		Assert.assertEquals("<termEntry id=\"a\"><langSet/></termEntry>", reader.next());
+		Assert.assertEquals("<termEntry id=\"b\"/>", reader.next());
+		Assert.assertNull(reader.next());
+	}
+
+	@Test
+	public void testTagSpanningLines() throws Exception {
+		final TermEntryReader reader = new TermEntryReader(new StringReader(
+				"<body>\n<termEntry\n   id=\"a\"\n>x</termEntry\n></body>"));
+		Assert.assertEquals("<termEntry\n   id=\"a\"\n>x</termEntry\n>", reader.next());
+		Assert.assertNull(reader.next());
+	}
+
+	@Test
+	public void testCommentsAndCData() throws Exception {
+		final TermEntryReader reader = new TermEntryReader(new StringReader(
+				"<body><!-- <termEntry id=\"no\"> --><termEntry id=\"a\"><note><![CDATA[</termEntry>]]></note>"
+				+ "<note a='>'>y</note></termEntry></body>"));
+		Assert.assertEquals("<termEntry id=\"a\"><note><![CDATA[</termEntry>]]></note><note a='>'>y</note></termEntry>", reader.next());
+		Assert.assertNull(reader.next());
+	}
+
+	@Test
+	public void testResyncAfterUnclosedEntry() throws Exception {
+		final TermEntryReader reader = new TermEntryReader(new StringReader(
+				"<body><termEntry id=\"a\"><langSet><termEntry id=\"b\"></termEntry><termEntryX/></body>"));
+		Assert.assertEquals("<termEntry id=\"b\"></termEntry>", reader.next());
+		Assert.assertNull(reader.next());
+		Assert.assertEquals(1, reader.getEntries());
+		Assert.assertEquals(1, reader.getMalformed());
+	}
+
+	@Test
+	public void testHeaderAndEntries() throws Exception {
+		final TermEntryReader reader = new TermEntryReader(new StringReader(
+				"<?xml version=\"1.0\"?><!DOCTYPE martif SYSTEM \"TBXcoreStructV02.dtd\"><martif type=\"TBX\">"
+				+ "<martifHeader><fileDesc/></martifHeader><text><body><termEntry/></body></text></martif>"),
+				"martifHeader", "termEntry");
+		Assert.assertEquals("<martifHeader><fileDesc/></martifHeader>", reader.next());
+		Assert.assertEquals("martifHeader", reader.getElement());
+		Assert.assertEquals("<martif type=\"TBX\">", reader.getRootTag());
+		final String entry = reader.next();
+		Assert.assertEquals("termEntry", reader.getElement());
+		reader.unread(entry);
+		Assert.assertEquals("<termEntry/>", reader.next());
+		Assert.assertEquals("termEntry", reader.getElement());
+		Assert.assertNull(reader.next());
+	}
+}
@@ -0,0 +1,61 @@
+package tbx2rdf.utils;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the minting of the identifiers of the elements without id
+ */
+public class URIMinterTest {
+
+	@After
+	public void tearDown() {
+		URIMinter.setTemplate(URIMinter.DEFAULT_TEMPLATE);
+	}
+
+	@Test
+	public void testHash() {
+		//Reference value of MurmurHash3 x64 128
+		Assert.assertEquals("e34bbc7b-bc07-1b6c-7a43-3ca9c49a9347", URIMinter.hash("The quick brown fox jumps over the lazy dog"));
+	}
+
+	@Test
+	public void testIdentifiersOnlyDependOnTheScope() {
+		final Model model = ModelFactory.createDefaultModel();
+		model.setNsPrefix("", "http://example.org/");
+		URIMinter.begin(model, "c1");
+		final String first = URIMinter.mint("Descrip");
+		final String second = URIMinter.mint("Descrip");
+		Assert.assertEquals("http://example.org/" + first, URIMinter.expand(model, first));
+		URIMinter.end();
+		Assert.assertTrue(first.startsWith("Descrip-"));
+		Assert.assertFalse(first.equals(second));
+
+		URIMinter.begin(model, "c2");
+		Assert.assertFalse(first.equals(URIMinter.mint("Descrip")));
+		URIMinter.end();
+		URIMinter.begin(model, "c1");
+		Assert.assertEquals(first, URIMinter.mint("Descrip"));
+		URIMinter.end();
+
+		Assert.assertEquals(URIMinter.mint("Agent", "John"), URIMinter.mint("Agent", "John"));
+	}
+
+	@Test
+	public void testTemplate() {
+		final Model model = ModelFactory.createDefaultModel();
+		URIMinter.setTemplate("{parent}/{type}{index}_{hash}");
+		URIMinter.begin(model, "c1");
+		Assert.assertTrue(URIMinter.mint("Note").startsWith("c1/Note0_"));
+		Assert.assertTrue(URIMinter.mint("Note").startsWith("c1/Note1_"));
+		URIMinter.end();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTemplateWithoutHash() {
+		URIMinter.setTemplate("{parent}-{type}{index}");
+	}
+}
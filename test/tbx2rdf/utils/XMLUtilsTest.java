@@ -0,0 +1,42 @@
+package tbx2rdf.utils;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+/**
+ * Tests the navigation of the DOM
+ */
+public class XMLUtilsTest {
+
+	@Test
+	public void testFirstChildInDocumentOrder() throws Exception {
+		final Element root = parse("<a><b><c id='1'/></b><c id='2'/><d><c id='3'/></d></a>");
+		Assert.assertEquals("1", XMLUtils.firstChild("c", root).getAttribute("id"));
+		Assert.assertEquals("d", XMLUtils.firstChild("d", root).getTagName());
+		Assert.assertEquals(root.getElementsByTagName("c").item(0), XMLUtils.firstChild("c", root));
+		try {
+			XMLUtils.firstChild("e", (Element) root.getFirstChild());
+			Assert.fail();
+		} catch (tbx2rdf.TBXFormatException e) {
+		}
+	}
+
+	@Test
+	public void testChildren() throws Exception {
+		final Element root = parse("<a> text <b/><!-- comment --><c/> </a>");
+		final List<String> names = new ArrayList<String>();
+		for (Element e : XMLUtils.children(root)) {
+			names.add(e.getTagName());
+		}
+		Assert.assertEquals("[b, c]", names.toString());
+		Assert.assertEquals("c", XMLUtils.nextSiblingElement(XMLUtils.firstChildElement(root)).getTagName());
+	}
+
+	private static Element parse(String xml) throws Exception {
+		return XMLUtils.getDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getDocumentElement();
+	}
+}
@@ -0,0 +1,175 @@
+package tbx2rdf.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import static org.apache.commons.lang3.StringEscapeUtils.escapeJson;
+import org.apache.log4j.Logger;
+import tbx2rdf.ConversionOptions;
+import tbx2rdf.ConversionProgress;
+import tbx2rdf.Mappings;
+import tbx2rdf.OutputFormat;
+import tbx2rdf.TBX2RDF_Converter;
+
+/**
+ * A conversion run in the background. The uploaded document is spooled to a file, converted by a worker of
+ * ConversionJobs and the RDF is spooled, gzip compressed, to another file until it is downloaded or the job
+ * expires.
+ */
+class ConversionJob implements Runnable {
+
+    private static final Logger log = Logger.getLogger(ConversionJob.class.getName());
+
+    enum State {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    final String id;
+    final File input;
+    final File output;
+    final OutputFormat format;
+    private final String resourceURI;
+    private final Mappings mappings;
+    private final int threads;
+    private final ConversionProgress progress = new ConversionProgress();
+
+    private volatile State state = State.QUEUED;
+    private volatile String error = null;
+    private final long created = System.currentTimeMillis();
+    private volatile long finished = 0;
+    ///Size of the uploaded document
+    volatile long inputBytes = 0;
+    ///Counters of the bytes read and written, once running
+    private volatile CountingInputStream in = null;
+    private volatile CountingOutputStream out = null;
+
+    ConversionJob(String id, File spool, String resourceURI, Mappings mappings, OutputFormat format, int threads) {
+        this.id = id;
+        this.input = new File(spool, id + ".tbx");
+        this.output = new File(spool, id + "." + format.getExtension() + ".gz");
+        this.format = format;
+        this.resourceURI = resourceURI;
+        this.mappings = mappings;
+        this.threads = threads;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (state != State.QUEUED) {
+                return;
+            }
+            //Removed from the jobs while a worker was taking it from the queue: it never runs
+            if (progress.isCancelled()) {
+                state = State.CANCELLED;
+                finished = System.currentTimeMillis();
+                input.delete();
+                return;
+            }
+            state = State.RUNNING;
+        }
+        State end = State.FAILED;
+        try {
+            final ConversionOptions options = new ConversionOptions();
+            options.threads = threads;
+            options.format = format;
+            in = new CountingInputStream(new BufferedInputStream(new FileInputStream(input), 1 << 16));
+            try {
+                out = new CountingOutputStream(new FileOutputStream(output));
+                final GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(out, 1 << 16), 1 << 16);
+                try {
+                    new TBX2RDF_Converter().convertAndSerialize(in, gzip, mappings, resourceURI, options, progress);
+                } finally {
+                    gzip.close();
+                }
+            } finally {
+                in.close();
+            }
+            end = State.DONE;
+        } catch (Exception x) {
+            if (!progress.isCancelled()) {
+                log.warn("Job " + id + " failed: " + x.getMessage());
+                error = x.getMessage() == null ? x.toString() : x.getMessage();
+            }
+        } finally {
+            input.delete();
+        }
+        synchronized (this) {
+            if (progress.isCancelled()) {
+                end = State.CANCELLED;
+            }
+            if (end != State.DONE) {
+                output.delete();
+            }
+            finished = System.currentTimeMillis();
+            state = end;
+        }
+    }
+
+    /**
+     * Stops the job, whether it is queued or running, and deletes its files once it has stopped
+     */
+    synchronized void cancel() {
+        progress.cancel();
+        if (state == State.QUEUED) {
+            state = State.CANCELLED;
+            finished = System.currentTimeMillis();
+            input.delete();
+        } else if (state != State.RUNNING) {
+            output.delete();
+        }
+        //A running job deletes its files when it stops
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * When the job finished, or 0 if it has not finished
+     */
+    long getFinished() {
+        return finished;
+    }
+
+    /**
+     * The status of the job, in JSON
+     * @param expiry Time a finished job is kept, in milliseconds
+     */
+    String toJSON(long expiry) {
+        final CountingInputStream in = this.in;
+        final CountingOutputStream out = this.out;
+        final StringBuilder sb = new StringBuilder("{");
+        sb.append("\"id\": \"").append(id).append("\"");
+        sb.append(", \"state\": \"").append(state).append("\"");
+        sb.append(", \"format\": \"").append(format.getName()).append("\"");
+        sb.append(", \"entries\": ").append(progress.getEntries());
+        sb.append(", \"errors\": ").append(progress.getErrors());
+        sb.append(", \"inputBytes\": ").append(inputBytes);
+        sb.append(", \"bytesRead\": ").append(in == null ? 0 : in.getByteCount());
+        sb.append(", \"bytesWritten\": ").append(out == null ? 0 : out.getByteCount());
+        sb.append(", \"created\": \"").append(format(created)).append("\"");
+        if (finished > 0) {
+            sb.append(", \"finished\": \"").append(format(finished)).append("\"");
+            sb.append(", \"expires\": \"").append(format(finished + expiry)).append("\"");
+        }
+        if (error != null) {
+            sb.append(", \"error\": \"").append(escapeJson(error)).append("\"");
+        }
+        return sb.append("}").toString();
+    }
+
+    private static String format(long time) {
+        final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return sdf.format(new Date(time));
+    }
+}
@@ -0,0 +1,182 @@
+package tbx2rdf.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import tbx2rdf.Mappings;
+import tbx2rdf.OutputFormat;
+
+/**
+ * The conversion jobs of the service.
+ *
+ * The jobs are run by a fixed number of workers, and wait in a bounded queue: when it is full, new jobs are
+ * rejected instead of piling up. The uploads and the results are spooled to a directory, and the jobs are
+ * forgotten, with their files, some time after they have finished.
+ */
+class ConversionJobs {
+
+    private final File spool;
+    private final long expiry;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService cleaner;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<String, ConversionJob>();
+
+    /**
+     * @param spool Directory of the uploads and the results. The files of previous jobs found there are deleted.
+     * @param workers Number of jobs run at the same time
+     * @param queue Number of jobs which can wait for a worker
+     * @param threads Number of threads converting the entries of each job
+     * @param expiry Time a finished job is kept, in milliseconds
+     */
+    ConversionJobs(File spool, int workers, int queue, int threads, long expiry) throws IOException {
+        if (!spool.isDirectory() && !spool.mkdirs()) {
+            throw new IOException("The spool directory " + spool + " could not be created");
+        }
+        final File[] old = spool.listFiles();
+        if (old != null) {
+            for (File file : old) {
+                if (file.getName().endsWith(".tbx") || file.getName().endsWith(".gz")) {
+                    file.delete();
+                }
+            }
+        }
+        this.spool = spool;
+        this.expiry = expiry;
+        this.threads = threads;
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queue)), daemonThreads("tbx2rdf-job-"));
+        cleaner = Executors.newSingleThreadScheduledExecutor(daemonThreads("tbx2rdf-job-cleaner-"));
+        final long period = Math.max(1000, Math.min(expiry, 60000));
+        cleaner.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether a new job would be rejected
+     */
+    boolean isFull() {
+        return executor.getQueue().remainingCapacity() == 0;
+    }
+
+    /**
+     * Spools a document and queues its conversion
+     * @param content The document, read to its end but not closed
+     * @param format The format of the result, written entry by entry
+     * @return The job
+     * @throws RejectedExecutionException If the queue is full
+     */
+    ConversionJob submit(InputStream content, String resourceURI, Mappings mappings, OutputFormat format) throws IOException {
+        final ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), spool, resourceURI, mappings, format, threads);
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(job.input), 1 << 16);
+        try {
+            job.inputBytes = IOUtils.copyLarge(content, out);
+        } catch (IOException x) {
+            out.close();
+            job.input.delete();
+            throw x;
+        }
+        out.close();
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException x) {
+            jobs.remove(job.id);
+            job.input.delete();
+            throw x;
+        }
+        return job;
+    }
+
+    ConversionJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * The jobs, queued, running or finished
+     */
+    List<ConversionJob> list() {
+        return new ArrayList<ConversionJob>(jobs.values());
+    }
+
+    /**
+     * Cancels a job and forgets it
+     * @return Whether the job existed
+     */
+    boolean remove(String id) {
+        final ConversionJob job = jobs.remove(id);
+        if (job == null) {
+            return false;
+        }
+        executor.remove(job);
+        job.cancel();
+        return true;
+    }
+
+    /**
+     * Time a finished job is kept, in milliseconds
+     */
+    long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Stops the workers, cancelling the jobs
+     */
+    void shutdown() {
+        cleaner.shutdownNow();
+        for (String id : new ArrayList<String>(jobs.keySet())) {
+            remove(id);
+        }
+        executor.shutdownNow();
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    /**
+     * Forgets the jobs finished for longer than the expiry time
+     */
+    private void expire() {
+        final long now = System.currentTimeMillis();
+        for (ConversionJob job : list()) {
+            final long finished = job.getFinished();
+            if (finished > 0 && now - finished > expiry) {
+                remove(job.id);
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, prefix + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
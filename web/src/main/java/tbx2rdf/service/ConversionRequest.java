@@ -0,0 +1,77 @@
+package tbx2rdf.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import tbx2rdf.Mappings;
+
+/**
+ * A TBX document posted to the conversion API, with its resourceURI and its mappings.
+ *
+ * The document is either the body of the request, with the resourceURI as a query parameter, or the last part
+ * of a multipart form with the fields resourceURI, mappings (optional) and content. It is not read here: the
+ * content is left as a stream.
+ */
+class ConversionRequest {
+
+    String resourceURI;
+    Mappings mappings;
+    InputStream content;
+
+    /**
+     * Reads the parameters of a request, up to the document
+     * @return The request, or null if it is not valid, in which case the error has been sent
+     */
+    static ConversionRequest parse(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        final ConversionRequest request = new ConversionRequest();
+        request.resourceURI = req.getParameter("resourceURI");
+        String mappingStr = null;
+        if (ServletFileUpload.isMultipartContent(req)) {
+            try {
+                //The parts are read as they arrive, so the document has to be the last one
+                final FileItemIterator iterator = new ServletFileUpload().getItemIterator(req);
+                while (request.content == null && iterator.hasNext()) {
+                    final FileItemStream item = iterator.next();
+                    if (item.getFieldName().equalsIgnoreCase("resourceURI")) {
+                        request.resourceURI = Streams.asString(item.openStream(), "UTF-8");
+                    } else if (item.getFieldName().equalsIgnoreCase("mappings")) {
+                        mappingStr = Streams.asString(item.openStream(), "UTF-8");
+                    } else if (item.getFieldName().equalsIgnoreCase("content")) {
+                        request.content = item.openStream();
+                    } else {
+                        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unexpected field " + item.getFieldName());
+                        return null;
+                    }
+                }
+            } catch (FileUploadException x) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, x.getMessage());
+                return null;
+            }
+        } else {
+            request.content = req.getInputStream();
+        }
+        if (request.content == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "No content");
+            return null;
+        }
+        if (request.resourceURI == null || request.resourceURI.trim().isEmpty()) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "No resourceURI");
+            return null;
+        }
+        request.resourceURI = request.resourceURI.trim();
+        try {
+            request.mappings = tbx2rdfServlet.readMappings(mappingStr);
+        } catch (RuntimeException x) {
+            //Bad lines and unknown value transformers
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid mappings: " + x.getMessage());
+            return null;
+        }
+        return request;
+    }
+}
@@ -0,0 +1,245 @@
+package tbx2rdf.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.log4j.Logger;
+import tbx2rdf.ConversionOptions;
+import tbx2rdf.OutputFormat;
+import tbx2rdf.TBX2RDF_Converter;
+import tbx2rdf.utils.EntryEmitter;
+
+/**
+ * Conversion API, for documents of any size. The TBX document is converted as it is uploaded, and the RDF
+ * of every termEntry is sent back as soon as it is converted.
+ *
+ * The document is posted as explained in ConversionRequest, for example:
+ *
+ *     curl --data-binary @file.tbx -H 'Accept: text/turtle' 'http://host/tbx2rdf/api/convert?resourceURI=http://example.org/'
+ *
+ * The format of the response is negotiated from the Accept header among N-Triples (the default), N-Quads,
+ * Turtle and RDF Thrift, which are written entry by entry. The other formats, such as turtle-pretty, are only
+ * given when they are named by the format parameter and the document is small, because the whole RDF is built
+ * in memory: the conversion is refused once more bytes than the limit have been read, whether the length of the
+ * request is given or not.
+ *
+ * The response has no length, so it is sent in chunks, and it is gzip compressed if the
+ * client accepts it. Neither the document nor the RDF are held in memory, only the entries being converted.
+ *
+ * The init parameters are "threads", the number of threads converting the entries of each request (1 by
+ * default), and "prettylimit", the maximum size in bytes of the requests converted in memory (1 MB).
+ */
+public class ConvertServlet extends HttpServlet {
+
+    private static final Logger log = Logger.getLogger(ConvertServlet.class.getName());
+
+    ///Number of threads converting the entries of each request
+    private int threads = 1;
+
+    ///Maximum size of the requests converted in memory
+    private long prettyLimit = 1 << 20;
+
+    @Override
+    public void init() throws ServletException {
+        final String value = getInitParameter("threads");
+        if (value != null) {
+            threads = Integer.parseInt(value.trim());
+        }
+        final String limit = getInitParameter("prettylimit");
+        if (limit != null) {
+            prettyLimit = Long.parseLong(limit.trim());
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        final OutputFormat format = chooseFormat(req, resp, Arrays.asList(OutputFormat.values()));
+        if (format == null) {
+            return;
+        }
+        final boolean streamed = EntryEmitter.supports(format);
+        if (!streamed && req.getContentLength() > prettyLimit) {
+            tooLarge(resp, format);
+            return;
+        }
+        final ConversionRequest request = ConversionRequest.parse(req, resp);
+        if (request == null) {
+            return;
+        }
+
+        resp.setContentType(format.getMediaType());
+        if (!format.isBinary()) {
+            resp.setCharacterEncoding("UTF-8");
+        }
+        resp.setHeader("Vary", "Accept, Accept-Encoding");
+        final boolean gzip = acceptsGzip(req);
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+        }
+        final ConversionOptions options = new ConversionOptions();
+        options.threads = threads;
+        LimitedInputStream limited = null;
+        try {
+            final OutputStream out = gzip ? new GZIPOutputStream(resp.getOutputStream(), 1 << 16) : resp.getOutputStream();
+            if (streamed) {
+                options.format = format;
+                new TBX2RDF_Converter().convertAndSerialize(request.content, out, request.mappings, request.resourceURI, options);
+            } else {
+                //Nothing is sent before the whole document has been read, so the response can still be an error
+                limited = new LimitedInputStream(request.content, prettyLimit);
+                final TBX2RDF_Converter converter = new TBX2RDF_Converter();
+                format.write(out, converter.convert(new InputStreamReader(limited, "UTF-8"), request.mappings).getModel(request.resourceURI));
+            }
+            if (gzip) {
+                ((GZIPOutputStream) out).finish();
+            }
+        } catch (Exception x) {
+            if (limited != null && limited.exceeded && !resp.isCommitted()) {
+                resp.reset();
+                tooLarge(resp, format);
+                return;
+            }
+            log.warn("Conversion failed: " + x.getMessage());
+            if (!resp.isCommitted()) {
+                resp.reset();
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error happened during conversion: " + x.getMessage());
+                return;
+            }
+            //Part of the RDF has been sent: the connection is aborted so that the client sees the response is incomplete
+            throw new IOException(x);
+        }
+    }
+
+    private void tooLarge(HttpServletResponse resp, OutputFormat format) throws IOException {
+        resp.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "The format " + format.getName() + " is only given for documents of up to " + prettyLimit + " bytes");
+    }
+
+    /**
+     * The format of the response: the one named by the format parameter, or else the one negotiated from the
+     * Accept header among the formats written entry by entry
+     * @param allowed The formats which can be named by the format parameter
+     * @return The format, or null if there is none acceptable, in which case the error has been sent
+     */
+    static OutputFormat chooseFormat(HttpServletRequest req, HttpServletResponse resp, List<OutputFormat> allowed) throws IOException {
+        final String name = req.getParameter("format");
+        if (name != null && !name.trim().isEmpty()) {
+            final OutputFormat format;
+            try {
+                format = OutputFormat.forName(name);
+            } catch (IllegalArgumentException x) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, x.getMessage());
+                return null;
+            }
+            if (!allowed.contains(format)) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "The format " + format.getName() + " cannot be given here");
+                return null;
+            }
+            return format;
+        }
+        final List<OutputFormat> streamed = new ArrayList<OutputFormat>(allowed);
+        streamed.retainAll(streamedFormats());
+        final OutputFormat format = OutputFormat.negotiate(req.getHeader("Accept"), streamed);
+        if (format == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_ACCEPTABLE, "None of the formats accepted can be given");
+        }
+        return format;
+    }
+
+    /**
+     * The formats written entry by entry, N-Triples first
+     */
+    static List<OutputFormat> streamedFormats() {
+        final List<OutputFormat> formats = new ArrayList<OutputFormat>();
+        for (OutputFormat format : OutputFormat.values()) {
+            if (EntryEmitter.supports(format)) {
+                formats.add(format);
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Whether the client accepts a gzip response
+     */
+    static boolean acceptsGzip(HttpServletRequest req) {
+        final String accept = req.getHeader("Accept-Encoding");
+        if (accept == null) {
+            return false;
+        }
+        for (String coding : accept.split(",")) {
+            final String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An input which fails once more than a number of bytes have been read
+     */
+    static class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+        ///Whether the limit has been exceeded
+        boolean exceeded = false;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            check();
+            final int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            check();
+            //One byte more than allowed is read, to tell a document of exactly the limit from a longer one
+            final int n = super.read(b, off, (int) Math.min(len, remaining + 1));
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            check();
+            final long skipped = super.skip(Math.min(n, remaining + 1));
+            consumed(skipped);
+            return skipped;
+        }
+
+        private void consumed(long n) throws IOException {
+            remaining -= n;
+            if (remaining < 0) {
+                exceeded = true;
+            }
+            check();
+        }
+
+        private void check() throws IOException {
+            if (exceeded) {
+                throw new IOException("The document is longer than the limit");
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package tbx2rdf.service;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import tbx2rdf.OutputFormat;
+
+/**
+ * Asynchronous conversion API, for documents which take too long to be converted within a request.
+ *
+ *     POST   api/jobs                submits a document, posted as explained in ConversionRequest, with the
+ *                                    format of the result (ntriples, nquads, turtle or thrift) in the format
+ *                                    parameter.
+ *                                    The answer, 202 Accepted, gives the status of the job and its URL in
+ *                                    Location. When too many jobs are waiting, the answer is 503 Service
+ *                                    Unavailable.
+ *     GET    api/jobs                the status of every job
+ *     GET    api/jobs/{id}           the status of a job: state (QUEUED, RUNNING, DONE, FAILED or CANCELLED),
+ *                                    entries processed, errors, bytes read from the document and written
+ *     GET    api/jobs/{id}/result    the RDF of a job which is DONE, gzip compressed if the client accepts it
+ *     DELETE api/jobs/{id}           cancels a job, and deletes it with its files
+ *
+ * The status is given in JSON. The init parameters are: workers, the number of jobs converted at the same time
+ * (2 by default); queue, the number of jobs which can wait (16); threads, the number of threads converting each
+ * job (1); spool, the directory of the uploads and the results (tbx2rdf-jobs in the temporary directory); and
+ * expiry, the minutes a finished job is kept (60).
+ */
+public class JobServlet extends HttpServlet {
+
+    private static final Logger log = Logger.getLogger(JobServlet.class.getName());
+
+    private ConversionJobs jobs;
+
+    @Override
+    public void init() throws ServletException {
+        final String spool = getInitParameter("spool");
+        try {
+            jobs = new ConversionJobs(
+                    spool == null || spool.trim().isEmpty() ? new File(System.getProperty("java.io.tmpdir"), "tbx2rdf-jobs") : new File(spool.trim()),
+                    intParameter("workers", 2), intParameter("queue", 16), intParameter("threads", 1),
+                    intParameter("expiry", 60) * 60000L);
+        } catch (IOException x) {
+            throw new ServletException(x);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        jobs.shutdown();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (req.getPathInfo() != null && !req.getPathInfo().equals("/")) {
+            resp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        //Checked before reading the upload, but a job can still be rejected once spooled
+        if (jobs.isFull()) {
+            busy(resp);
+            return;
+        }
+        final OutputFormat format = req.getParameter("format") == null ? OutputFormat.NTRIPLES
+                : ConvertServlet.chooseFormat(req, resp, ConvertServlet.streamedFormats());
+        if (format == null) {
+            return;
+        }
+        final ConversionRequest request = ConversionRequest.parse(req, resp);
+        if (request == null) {
+            return;
+        }
+        final ConversionJob job;
+        try {
+            job = jobs.submit(request.content, request.resourceURI, request.mappings, format);
+        } catch (RejectedExecutionException x) {
+            busy(resp);
+            return;
+        }
+        log.info("Job " + job.id + " queued, " + job.inputBytes + " bytes");
+        resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+        resp.setHeader("Location", req.getContextPath() + req.getServletPath() + "/" + job.id);
+        writeJSON(resp, job.toJSON(jobs.getExpiry()));
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        final String[] path = splitPath(req);
+        if (path.length == 0) {
+            final List<ConversionJob> list = jobs.list();
+            final StringBuilder sb = new StringBuilder("[");
+            for (ConversionJob job : list) {
+                sb.append(sb.length() == 1 ? "\n" : ",\n").append(job.toJSON(jobs.getExpiry()));
+            }
+            writeJSON(resp, sb.append("\n]").toString());
+            return;
+        }
+        final ConversionJob job = jobs.get(path[0]);
+        if (job == null || path.length > 2 || (path.length == 2 && !path[1].equals("result"))) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (path.length == 1) {
+            writeJSON(resp, job.toJSON(jobs.getExpiry()));
+        } else if (job.getState() != ConversionJob.State.DONE) {
+            resp.setStatus(HttpServletResponse.SC_CONFLICT);
+            writeJSON(resp, job.toJSON(jobs.getExpiry()));
+        } else {
+            sendResult(req, resp, job);
+        }
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        final String[] path = splitPath(req);
+        if (path.length != 1 || !jobs.remove(path[0])) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    /************* PRIVATE METHODS *********************************************/
+
+    /**
+     * Sends the RDF spooled, as it is if the client accepts gzip
+     */
+    private static void sendResult(HttpServletRequest req, HttpServletResponse resp, ConversionJob job) throws IOException {
+        final InputStream in;
+        try {
+            in = new BufferedInputStream(new FileInputStream(job.output), 1 << 16);
+        } catch (IOException x) {
+            //Expired in the meantime
+            resp.sendError(HttpServletResponse.SC_GONE);
+            return;
+        }
+        try {
+            resp.setContentType(job.format.getMediaType());
+            if (!job.format.isBinary()) {
+                resp.setCharacterEncoding("UTF-8");
+            }
+            resp.setHeader("Vary", "Accept-Encoding");
+            resp.setHeader("Content-Disposition", "attachment; filename=\"" + job.id + "." + job.format.getExtension() + "\"");
+            if (ConvertServlet.acceptsGzip(req)) {
+                resp.setHeader("Content-Encoding", "gzip");
+                if (job.output.length() <= Integer.MAX_VALUE) {
+                    resp.setContentLength((int) job.output.length());
+                }
+                IOUtils.copyLarge(in, resp.getOutputStream());
+            } else {
+                IOUtils.copyLarge(new GZIPInputStream(in, 1 << 16), resp.getOutputStream());
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void busy(HttpServletResponse resp) throws IOException {
+        resp.setHeader("Retry-After", "60");
+        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many conversions are waiting, try again later");
+    }
+
+    private static void writeJSON(HttpServletResponse resp, String json) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+        final PrintWriter writer = resp.getWriter();
+        writer.println(json);
+        writer.close();
+    }
+
+    /**
+     * The segments of the path after api/jobs
+     */
+    private static String[] splitPath(HttpServletRequest req) {
+        final String path = req.getPathInfo();
+        if (path == null || path.replace("/", "").isEmpty()) {
+            return new String[0];
+        }
+        return path.replaceAll("^/+|/+$", "").split("/+");
+    }
+
+    private int intParameter(String name, int defaultValue) {
+        final String value = getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
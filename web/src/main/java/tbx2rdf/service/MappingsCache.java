@@ -0,0 +1,89 @@
+package tbx2rdf.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import tbx2rdf.Mappings;
+
+/**
+ * The mappings of the conversions, parsed once.
+ *
+ * The default mappings are read and parsed when the cache is created. The default mappings followed by the
+ * extra mappings of a user are parsed the first time they are needed and kept, by the SHA-256 of the extra
+ * mappings, up to a maximum number: the least recently used are dropped. The mappings are not modified by
+ * the conversions, so they are shared by the requests.
+ */
+class MappingsCache {
+
+    private final String defaultText;
+    private final Mappings defaultMappings;
+    private final Map<String, Mappings> extended;
+
+    /**
+     * @param resource The resource with the default mappings
+     * @param size Number of combinations of default and extra mappings kept
+     */
+    MappingsCache(String resource, final int size) throws IOException {
+        final InputStream in = MappingsCache.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("The mappings " + resource + " are missing");
+        }
+        try {
+            defaultText = IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+        defaultMappings = Mappings.readInMappings(new StringReader(defaultText));
+        extended = new LinkedHashMap<String, Mappings>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mappings> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * The default mappings followed by extra mappings
+     * @param extra The extra mappings, in the format of mappings.default, or null
+     * @throws RuntimeException If the extra mappings are not valid
+     */
+    Mappings get(String extra) throws IOException {
+        if (extra == null || extra.trim().isEmpty()) {
+            return defaultMappings;
+        }
+        final String key = sha256(extra);
+        synchronized (extended) {
+            final Mappings mappings = extended.get(key);
+            if (mappings != null) {
+                return mappings;
+            }
+        }
+        //Parsed outside of the lock: two requests with the same new mappings may both parse them
+        //The mappings come from the requests: their exceptional mappings must not load classes
+        final Mappings mappings = Mappings.readInMappings(new StringReader(defaultText + extra), false);
+        synchronized (extended) {
+            extended.put(key, mappings);
+        }
+        return mappings;
+    }
+
+    private static String sha256(String s) throws IOException {
+        try {
+            final StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(s.getBytes("UTF-8"))) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException x) {
+            throw new IOException(x);
+        }
+    }
+}
@@ -2,17 +2,16 @@ package tbx2rdf.service;
 
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import tbx2rdf.TBX2RDF_Converter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.io.SequenceInputStream;
 import java.io.StringReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import javax.servlet.ServletException;
 import javax.servlet.http.*;
 import org.apache.commons.fileupload.FileItemIterator;
 import org.apache.commons.fileupload.FileItemStream;
@@ -23,6 +22,7 @@ import org.apache.commons.io.FileUtils;
 import static org.apache.commons.lang3.StringEscapeUtils.escapeHtml4;
 import org.apache.log4j.Logger;
 import tbx2rdf.Mappings;
+import tbx2rdf.OutputFormat;
 
 /**
  * Servlet for the web tbx2rdf.appspot.com Expects a "content" parameter with
@@ -37,6 +37,27 @@ public class tbx2rdfServlet extends HttpServlet {
 
     private static final Logger log = Logger.getLogger(tbx2rdfServlet.class.getName());
 
+    ///Number of combinations of default and extra mappings kept parsed
+    private static final int MAPPINGS_CACHE_SIZE = 64;
+
+    ///Size of the largest document shown as pretty Turtle, the bigger ones are shown as plain Turtle
+    private static final int PRETTY_LIMIT = 1 << 20;
+
+    ///Mappings shared by the servlets
+    private static MappingsCache mappingsCache = null;
+
+    /**
+     * Parses the default mappings when the service starts
+     */
+    @Override
+    public void init() throws ServletException {
+        try {
+            getMappingsCache();
+        } catch (IOException x) {
+            throw new ServletException(x);
+        }
+    }
+
     /**
      * Processes the HTTP POST command. Expects a parameter called "content"
      * with the XML as input Responses with an HTML page containing the answer.
@@ -167,7 +188,11 @@ public class tbx2rdfServlet extends HttpServlet {
                 + "  <label for='content'>Extra mappings:</label><br>\n"
                 + "  <textarea name='mappings' cols='80' rows='10'></textarea><br>\n"
                 + "  <input type='submit' value='Submit'><br>\n"
-                + "</form></body></html>";
+                + "</form>\n"
+                + "<p>Big documents can be posted to <code>api/convert?resourceURI=...</code>, which streams back the N-Triples,\n"
+                + "or the N-Quads, Turtle or RDF Thrift if the <code>Accept</code> header asks for them,\n"
+                + "or to <code>api/jobs?resourceURI=...</code>, which converts them in the background.</p>\n"
+                + "</body></html>";
     }
 	/**
 	 * Gets an standard header
@@ -189,16 +214,9 @@ public class tbx2rdfServlet extends HttpServlet {
 
         String strout = "Error happened during conversion - \n";
         try {
-            final Mappings mappings;
-            if (mappingStr == null) {
-                mappings = Mappings.readInMappings(new InputStreamReader(tbx2rdfServlet.class.getResourceAsStream("/mappings.default")));
-            } else {
-                mappings = Mappings.readInMappings(new InputStreamReader(new SequenceInputStream(
-                        tbx2rdfServlet.class.getResourceAsStream("/mappings.default"),
-                        new ByteArrayInputStream(mappingStr.getBytes()))));
-            }
+            final Mappings mappings = readMappings(mappingStr);
             TBX2RDF_Converter converter = new TBX2RDF_Converter();
-            strout = converter.convert(str, mappings, resourceURI);
+            strout = converter.convert(str, mappings, resourceURI, str.length() <= PRETTY_LIMIT ? OutputFormat.TURTLE_PRETTY : OutputFormat.TURTLE);
         } catch (Exception e) {
             e.printStackTrace();
             strout += "Error: " + e.getMessage();
@@ -206,6 +224,21 @@ public class tbx2rdfServlet extends HttpServlet {
         return strout;
     }
 
+    /**
+     * The default mappings, followed by the extra mappings given by the user
+     * @param mappingStr The extra mappings, in the format of mappings.default, or null
+     */
+    static Mappings readMappings(String mappingStr) throws IOException {
+        return getMappingsCache().get(mappingStr);
+    }
+
+    private static synchronized MappingsCache getMappingsCache() throws IOException {
+        if (mappingsCache == null) {
+            mappingsCache = new MappingsCache("/mappings.default", MAPPINGS_CACHE_SIZE);
+        }
+        return mappingsCache;
+    }
+
     private static void storeInputTBX(String content, String ip) {
         File folder = new File("inputs");  
         try{   
@@ -0,0 +1,185 @@
+package tbx2rdf.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tbx2rdf.OutputFormat;
+
+/**
+ * Tests the life of the conversion jobs: submission, status, cancellation and expiry
+ */
+public class ConversionJobsTest {
+
+	private static final String RESOURCE = "http://example.org/";
+
+	///Entries of a document long enough to be still converting while the next jobs are submitted
+	private static final int LONG = 20000;
+
+	private File spool;
+	private ConversionJobs jobs;
+
+	@Before
+	public void setUp() throws IOException {
+		spool = Files.createTempDirectory("tbx2rdf-jobs").toFile();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (jobs != null) {
+			jobs.shutdown();
+		}
+		FileUtils.deleteDirectory(spool);
+	}
+
+	@Test(timeout = 60000)
+	public void testSubmitAndStatus() throws Exception {
+		jobs = new ConversionJobs(spool, 1, 4, 1, 60000);
+		final ConversionJob job = submit(3);
+		Assert.assertSame(job, jobs.get(job.id));
+		Assert.assertTrue(jobs.list().contains(job));
+		waitFor(job, ConversionJob.State.DONE);
+
+		final String status = job.toJSON(jobs.getExpiry());
+		Assert.assertTrue(status, status.contains("\"id\": \"" + job.id + "\""));
+		Assert.assertTrue(status, status.contains("\"state\": \"DONE\""));
+		Assert.assertTrue(status, status.contains("\"entries\": 3"));
+		Assert.assertTrue(status, status.contains("\"errors\": 0"));
+		Assert.assertTrue(status, status.contains("\"expires\""));
+		//The upload is deleted once converted, the result is kept
+		Assert.assertFalse(job.input.exists());
+		final InputStream in = new GZIPInputStream(new FileInputStream(job.output));
+		try {
+			final String rdf = IOUtils.toString(in, "UTF-8");
+			Assert.assertTrue(rdf.contains("<" + RESOURCE));
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testQueueFull() throws Exception {
+		jobs = new ConversionJobs(spool, 1, 1, 1, 60000);
+		final ConversionJob running = submit(LONG);
+		final ConversionJob queued = submit(1);
+		Assert.assertTrue(jobs.isFull());
+		try {
+			submit(1);
+			Assert.fail("The job was queued beyond the capacity");
+		} catch (RejectedExecutionException x) {
+			//Expected
+		}
+		//The rejected job is neither kept nor left in the spool
+		Assert.assertEquals(2, jobs.list().size());
+		Assert.assertEquals(2, count(".tbx"));
+		Assert.assertTrue(jobs.remove(running.id));
+		waitFor(queued, ConversionJob.State.DONE);
+		Assert.assertFalse(jobs.isFull());
+	}
+
+	@Test(timeout = 60000)
+	public void testCancel() throws Exception {
+		jobs = new ConversionJobs(spool, 1, 2, 1, 60000);
+		final ConversionJob running = submit(LONG);
+		final ConversionJob queued = submit(1);
+
+		//A queued job stops at once
+		Assert.assertTrue(jobs.remove(queued.id));
+		Assert.assertEquals(ConversionJob.State.CANCELLED, queued.getState());
+		Assert.assertFalse(queued.input.exists());
+		Assert.assertNull(jobs.get(queued.id));
+
+		//A running job stops at the next entry, and deletes its files
+		Assert.assertTrue(jobs.remove(running.id));
+		waitFor(running, ConversionJob.State.CANCELLED);
+		Assert.assertFalse(running.input.exists());
+		Assert.assertFalse(running.output.exists());
+		Assert.assertNull(jobs.get(running.id));
+
+		Assert.assertFalse(jobs.remove("unknown"));
+		Assert.assertTrue(jobs.list().isEmpty());
+	}
+
+	@Test
+	public void testCancelledJobNeverRuns() throws Exception {
+		//A worker may take the job from the queue after it has been removed from the jobs
+		final ConversionJob job = new ConversionJob("late", spool, RESOURCE, tbx2rdfServlet.readMappings(null), OutputFormat.NTRIPLES, 1);
+		FileUtils.writeByteArrayToFile(job.input, document(1));
+		job.cancel();
+		job.run();
+		Assert.assertEquals(ConversionJob.State.CANCELLED, job.getState());
+		Assert.assertFalse(job.input.exists());
+		Assert.assertFalse(job.output.exists());
+	}
+
+	@Test(timeout = 60000)
+	public void testExpiry() throws Exception {
+		jobs = new ConversionJobs(spool, 1, 4, 1, 1);
+		final ConversionJob job = submit(1);
+		waitFor(job, ConversionJob.State.DONE);
+		//The cleaner runs every second
+		while (jobs.get(job.id) != null) {
+			Thread.sleep(100);
+		}
+		Assert.assertFalse(job.output.exists());
+	}
+
+	@Test
+	public void testFilesOfPreviousJobsAreDeleted() throws Exception {
+		final File upload = new File(spool, "old.tbx");
+		final File result = new File(spool, "old.nt.gz");
+		final File other = new File(spool, "other.txt");
+		FileUtils.writeStringToFile(upload, "x", "UTF-8");
+		FileUtils.writeStringToFile(result, "x", "UTF-8");
+		FileUtils.writeStringToFile(other, "x", "UTF-8");
+		jobs = new ConversionJobs(spool, 1, 1, 1, 60000);
+		Assert.assertFalse(upload.exists());
+		Assert.assertFalse(result.exists());
+		Assert.assertTrue(other.exists());
+	}
+
+	private ConversionJob submit(int entries) throws IOException {
+		return jobs.submit(new ByteArrayInputStream(document(entries)), RESOURCE, tbx2rdfServlet.readMappings(null), OutputFormat.NTRIPLES);
+	}
+
+	private int count(String extension) {
+		int n = 0;
+		for (File file : spool.listFiles()) {
+			if (file.getName().endsWith(extension)) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private static void waitFor(ConversionJob job, ConversionJob.State state) throws InterruptedException {
+		while (job.getState() != state) {
+			if (job.getState() == ConversionJob.State.FAILED) {
+				Assert.fail("The job failed: " + job.toJSON(0));
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * A TBX document with a number of entries
+	 */
+	static byte[] document(int entries) throws IOException {
+		final StringBuilder sb = new StringBuilder("<martif type=\"TBX\" xml:lang=\"en\"><martifHeader><fileDesc><sourceDesc><p>Test</p></sourceDesc></fileDesc></martifHeader><text><body>\n");
+		for (int i = 0; i < entries; i++) {
+			sb.append("<termEntry id=\"e").append(i).append("\"><langSet xml:lang=\"en\"><tig><term>term ").append(i)
+					.append("</term><termNote type=\"termType\">fullForm</termNote></tig></langSet></termEntry>\n");
+		}
+		return sb.append("</body></text></martif>").toString().getBytes("UTF-8");
+	}
+}
@@ -0,0 +1,149 @@
+package tbx2rdf.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the reading of the parameters of a conversion request, as a body or as a multipart form
+ */
+public class ConversionRequestTest {
+
+	private static final String BOUNDARY = "tbx2rdf-boundary";
+	private static final String DOCUMENT = "<martif type=\"TBX\"><text><body/></text></martif>";
+
+	@Test
+	public void testBody() throws Exception {
+		final HttpServletRequest req = request("application/xml", DOCUMENT);
+		when(req.getParameter("resourceURI")).thenReturn(" http://example.org/ ");
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		final ConversionRequest request = ConversionRequest.parse(req, resp);
+		Assert.assertNotNull(request);
+		Assert.assertEquals("http://example.org/", request.resourceURI);
+		Assert.assertSame(tbx2rdfServlet.readMappings(null), request.mappings);
+		Assert.assertEquals(DOCUMENT, IOUtils.toString(request.content, "UTF-8"));
+		verify(resp, never()).sendError(anyInt(), anyString());
+	}
+
+	@Test
+	public void testNoResourceURI() throws Exception {
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		Assert.assertNull(ConversionRequest.parse(request("application/xml", DOCUMENT), resp));
+		verify(resp).sendError(HttpServletResponse.SC_BAD_REQUEST, "No resourceURI");
+	}
+
+	@Test
+	public void testMultipart() throws Exception {
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		final ConversionRequest request = ConversionRequest.parse(multipart(
+				"resourceURI", "http://example.org/",
+				"mappings", "admin\ttype\tcustom\t<http://example.org/custom>\tDP",
+				"content", DOCUMENT), resp);
+		Assert.assertNotNull(request);
+		Assert.assertEquals("http://example.org/", request.resourceURI);
+		Assert.assertNotSame(tbx2rdfServlet.readMappings(null), request.mappings);
+		Assert.assertEquals(DOCUMENT, IOUtils.toString(request.content, "UTF-8"));
+		verify(resp, never()).sendError(anyInt(), anyString());
+	}
+
+	@Test
+	public void testDocumentIsTheLastPart() throws Exception {
+		//The parts after the document are not read: these mappings, which are not valid, are ignored
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		final ConversionRequest request = ConversionRequest.parse(multipart(
+				"resourceURI", "http://example.org/",
+				"content", DOCUMENT,
+				"mappings", "not a mapping"), resp);
+		Assert.assertNotNull(request);
+		Assert.assertSame(tbx2rdfServlet.readMappings(null), request.mappings);
+		verify(resp, never()).sendError(anyInt(), anyString());
+	}
+
+	@Test
+	public void testInvalidMappings() throws Exception {
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		Assert.assertNull(ConversionRequest.parse(multipart(
+				"resourceURI", "http://example.org/",
+				"mappings", "not a mapping",
+				"content", DOCUMENT), resp));
+		verify(resp).sendError(anyInt(), startsWith("Invalid mappings"));
+	}
+
+	@Test
+	public void testTransformerClassName() throws Exception {
+		//Only the registered transformers can be named: no class of the server is loaded for a request
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		Assert.assertNull(ConversionRequest.parse(multipart(
+				"resourceURI", "http://example.org/",
+				"mappings", "descrip\ttype\tsubjectField\t<tbx2rdf.datasets.iate.SubjectFieldTransformer>\tEX",
+				"content", DOCUMENT), resp));
+		verify(resp).sendError(anyInt(), startsWith("Invalid mappings"));
+	}
+
+	@Test
+	public void testUnexpectedField() throws Exception {
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		Assert.assertNull(ConversionRequest.parse(multipart(
+				"resourceURI", "http://example.org/",
+				"other", "x",
+				"content", DOCUMENT), resp));
+		verify(resp).sendError(HttpServletResponse.SC_BAD_REQUEST, "Unexpected field other");
+	}
+
+	@Test
+	public void testNoContent() throws Exception {
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		Assert.assertNull(ConversionRequest.parse(multipart("resourceURI", "http://example.org/"), resp));
+		verify(resp).sendError(HttpServletResponse.SC_BAD_REQUEST, "No content");
+	}
+
+	/**
+	 * A multipart form
+	 * @param fields The names and the values of the fields, in order
+	 */
+	private static HttpServletRequest multipart(String... fields) throws IOException {
+		final StringBuilder body = new StringBuilder();
+		for (int i = 0; i < fields.length; i += 2) {
+			body.append("--").append(BOUNDARY).append("\r\n");
+			body.append("Content-Disposition: form-data; name=\"").append(fields[i]).append("\"\r\n\r\n");
+			body.append(fields[i + 1]).append("\r\n");
+		}
+		body.append("--").append(BOUNDARY).append("--\r\n");
+		return request("multipart/form-data; boundary=" + BOUNDARY, body.toString());
+	}
+
+	static HttpServletRequest request(String contentType, String body) throws IOException {
+		final byte[] bytes = body.getBytes("UTF-8");
+		final InputStream in = new ByteArrayInputStream(bytes);
+		final HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getMethod()).thenReturn("POST");
+		when(req.getContentType()).thenReturn(contentType);
+		when(req.getContentLength()).thenReturn(bytes.length);
+		when(req.getCharacterEncoding()).thenReturn("UTF-8");
+		when(req.getInputStream()).thenReturn(new ServletInputStream() {
+			@Override
+			public int read() throws IOException {
+				return in.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return in.read(b, off, len);
+			}
+		});
+		return req;
+	}
+}
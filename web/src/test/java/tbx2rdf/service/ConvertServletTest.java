@@ -0,0 +1,72 @@
+package tbx2rdf.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the limit on the size of the documents converted in memory
+ */
+public class ConvertServletTest {
+
+	private ConvertServlet servlet;
+	private ByteArrayOutputStream body;
+	private HttpServletResponse resp;
+
+	@Before
+	public void setUp() throws Exception {
+		final ServletConfig config = mock(ServletConfig.class);
+		when(config.getInitParameter("prettylimit")).thenReturn("1000");
+		servlet = new ConvertServlet();
+		servlet.init(config);
+		body = new ByteArrayOutputStream();
+		resp = mock(HttpServletResponse.class);
+		when(resp.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				body.write(b);
+			}
+		});
+	}
+
+	@Test
+	public void testSmallChunkedDocument() throws Exception {
+		//The length of a chunked upload is unknown
+		servlet.doPost(request(ConversionJobsTest.document(1), -1), resp);
+		verify(resp, never()).sendError(anyInt(), anyString());
+		Assert.assertTrue(body.toString("UTF-8").contains("@prefix"));
+	}
+
+	@Test
+	public void testLargeChunkedDocument() throws Exception {
+		servlet.doPost(request(ConversionJobsTest.document(20), -1), resp);
+		verify(resp).sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "The format turtle-pretty is only given for documents of up to 1000 bytes");
+	}
+
+	@Test
+	public void testLargeDocument() throws Exception {
+		final byte[] document = ConversionJobsTest.document(20);
+		servlet.doPost(request(document, document.length), resp);
+		verify(resp).sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "The format turtle-pretty is only given for documents of up to 1000 bytes");
+	}
+
+	private static HttpServletRequest request(byte[] document, int length) throws IOException {
+		final HttpServletRequest req = ConversionRequestTest.request("application/xml", new String(document, "UTF-8"));
+		when(req.getContentLength()).thenReturn(length);
+		when(req.getParameter("format")).thenReturn("turtle-pretty");
+		when(req.getParameter("resourceURI")).thenReturn("http://example.org/");
+		return req;
+	}
+}